@@ -0,0 +1,106 @@
+package com.prog11.benchmarks;
+
+import com.prog11.bbdd.Propietario;
+import com.prog11.bbdd.PropietariosDAO;
+import com.prog11.bbdd.Vehiculo;
+import com.prog11.bbdd.VehiculosDAO;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Base de datos H2 en memoria, en modo MariaDB, con el esquema del concesionario
+ * y el número de propietarios y vehículos indicado en los parámetros.
+ * <p>
+ * Los datos se generan con una semilla fija, así que cada ejecución mide lo mismo.
+ */
+@State(Scope.Benchmark)
+public class BaseDatosBenchmark {
+    static final String[] MARCAS = {
+            "Chevrolet", "Ford", "Honda", "Hyundai", "Kia", "Mazda", "Nissan", "Peugeot", "Seat", "Toyota"
+    };
+
+    @Param({"100"})
+    public int propietarios;
+
+    @Param({"10000"})
+    public int vehiculos;
+
+    Connection connection;
+
+    @Setup(Level.Trial)
+    public void crear() throws SQLException {
+        connection = DriverManager.getConnection(
+                "jdbc:h2:mem:concesionario;MODE=MariaDB;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+            stmt.execute("CREATE TABLE propietarios (" +
+                    "id_prop INT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                    "nombre_prop VARCHAR(100), " +
+                    "dni_prop VARCHAR(9) UNIQUE)");
+            stmt.execute("CREATE TABLE vehiculos (" +
+                    "mat_veh CHAR(7) NOT NULL PRIMARY KEY, " +
+                    "marca_veh VARCHAR(50), " +
+                    "kms_veh INT, " +
+                    // REAL es el FLOAT de 4 bytes de MariaDB; en H2, FLOAT es de 8
+                    "precio_veh REAL, " +
+                    "desc_veh VARCHAR(300), " +
+                    "id_prop INT, " +
+                    "FOREIGN KEY (id_prop) REFERENCES propietarios (id_prop) ON DELETE CASCADE)");
+            stmt.execute("CREATE INDEX idx_vehiculos_id_prop ON vehiculos (id_prop)");
+            stmt.execute("CREATE INDEX idx_vehiculos_marca_mat ON vehiculos (marca_veh, mat_veh)");
+            stmt.execute("CREATE INDEX idx_vehiculos_marca_precio ON vehiculos (marca_veh, precio_veh)");
+            stmt.execute("CREATE INDEX idx_vehiculos_precio ON vehiculos (precio_veh)");
+        }
+
+        List<Propietario> nuevosPropietarios = new ArrayList<>(propietarios);
+        for (int i = 1; i <= propietarios; i++) {
+            nuevosPropietarios.add(new Propietario("Propietario " + i, dni(i)));
+        }
+        PropietariosDAO.insertarPropietarios(connection, nuevosPropietarios);
+
+        Random aleatorio = new Random(42);
+        List<Vehiculo> nuevosVehiculos = new ArrayList<>(vehiculos);
+        for (int i = 1; i <= vehiculos; i++) {
+            nuevosVehiculos.add(new Vehiculo(matricula('S', i),
+                    MARCAS[aleatorio.nextInt(MARCAS.length)],
+                    aleatorio.nextInt(300_000),
+                    5_000 + aleatorio.nextInt(45_000),
+                    1 + aleatorio.nextInt(propietarios)));
+        }
+        VehiculosDAO.insertarVehiculos(connection, nuevosVehiculos);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    /**
+     * @return El DNI del propietario con el número indicado.
+     */
+    static String dni(int numero) {
+        return String.format("%08d%c", numero, 'A' + numero % 23);
+    }
+
+    /**
+     * @return Una matrícula de 7 caracteres con el prefijo y el número indicados.
+     */
+    static String matricula(char prefijo, int numero) {
+        return prefijo + String.format("%06d", numero % 1_000_000);
+    }
+}
@@ -0,0 +1,45 @@
+package com.prog11.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecuta los benchmarks de los DAO midiendo operaciones por segundo y memoria asignada
+ * por operación ({@code gc.alloc.rate.norm}).
+ * <p>
+ * Uso: {@code java -jar target/benchmarks.jar [filtro] [propietarios] [vehiculos]}, por ejemplo
+ * {@code java -jar target/benchmarks.jar Lectura 1000 100000}.
+ */
+public class EjecutarBenchmarks {
+
+    /**
+     * @param args Filtro de benchmarks (expresión regular), número de propietarios y número de vehículos.
+     * @throws RunnerException Si falla la ejecución de JMH.
+     */
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder opciones = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "com.prog11.benchmarks.*")
+                .mode(Mode.Throughput)
+                .timeUnit(TimeUnit.SECONDS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(2))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .forks(1)
+                .addProfiler(GCProfiler.class);
+        if (args.length > 1) {
+            opciones.param("propietarios", args[1]);
+        }
+        if (args.length > 2) {
+            opciones.param("vehiculos", args[2]);
+        }
+        new Runner(opciones.build()).run();
+    }
+}
@@ -0,0 +1,49 @@
+package com.prog11.benchmarks;
+
+import com.prog11.bbdd.FuncionalidadesExtrasDAO;
+import com.prog11.bbdd.PropietariosDAO;
+import com.prog11.bbdd.VehiculosDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Escrituras de una sola fila. Cada operación que inserta deshace después su inserción,
+ * para que el tamaño de las tablas no cambie durante la medición.
+ */
+@State(Scope.Thread)
+public class EscrituraBenchmark {
+    private int contador;
+
+    @Benchmark
+    public int insertarYEliminarVehiculo(BaseDatosBenchmark bd) {
+        String matricula = BaseDatosBenchmark.matricula('B', ++contador);
+        VehiculosDAO.insertarVehiculo(bd.connection, matricula, "Ford", 10_000, 12_000, 1);
+        return VehiculosDAO.eliminarVehiculo(bd.connection, matricula);
+    }
+
+    @Benchmark
+    public int insertarYEliminarPropietario(BaseDatosBenchmark bd) {
+        String dni = BaseDatosBenchmark.dni(bd.propietarios + 1 + contador++ % 1_000_000);
+        PropietariosDAO.insertarPropietario(bd.connection, "Propietario de prueba", dni);
+        return PropietariosDAO.eliminarPropietario(bd.connection, dni);
+    }
+
+    @Benchmark
+    public int actualizarPropietarioVehiculo(BaseDatosBenchmark bd) {
+        contador++;
+        return VehiculosDAO.actualizarPropietarioVehiculo(bd.connection,
+                BaseDatosBenchmark.matricula('S', 1 + contador % bd.vehiculos),
+                1 + contador % bd.propietarios);
+    }
+
+    @Benchmark
+    public int actualizarVehiculo(BaseDatosBenchmark bd) {
+        contador++;
+        return FuncionalidadesExtrasDAO.actualizarVehiculo(bd.connection,
+                BaseDatosBenchmark.matricula('S', 1 + contador % bd.vehiculos),
+                BaseDatosBenchmark.MARCAS[contador % BaseDatosBenchmark.MARCAS.length],
+                contador % 300_000,
+                5_000 + contador % 45_000);
+    }
+}
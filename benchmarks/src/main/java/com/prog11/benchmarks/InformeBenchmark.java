@@ -0,0 +1,53 @@
+package com.prog11.benchmarks;
+
+import com.prog11.bbdd.FormatoExportacion;
+import com.prog11.bbdd.FuncionalidadesExtrasDAO;
+import com.prog11.bbdd.ResultadoExportacion;
+import com.prog11.bbdd.Vehiculo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Generación del informe de inventario: lectura completa en memoria y exportación a archivo.
+ */
+@State(Scope.Thread)
+public class InformeBenchmark {
+
+    @Param({"TEXTO", "CSV", "JSONL"})
+    public FormatoExportacion formato;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private Path archivo;
+
+    @Setup(Level.Trial)
+    public void crearArchivo() throws IOException {
+        archivo = Files.createTempFile("inventario", "." + formato.extension());
+    }
+
+    @TearDown(Level.Trial)
+    public void borrarArchivo() throws IOException {
+        Files.deleteIfExists(archivo);
+    }
+
+    @Benchmark
+    public List<Vehiculo> obtenerInventario(BaseDatosBenchmark bd) {
+        return FuncionalidadesExtrasDAO.obtenerInventario(bd.connection);
+    }
+
+    @Benchmark
+    public ResultadoExportacion exportarInventario(BaseDatosBenchmark bd) {
+        return FuncionalidadesExtrasDAO.exportarInventario(bd.connection, archivo, formato, gzip);
+    }
+}
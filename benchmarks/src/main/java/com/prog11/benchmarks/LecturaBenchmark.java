@@ -0,0 +1,71 @@
+package com.prog11.benchmarks;
+
+import com.prog11.bbdd.FuncionalidadesExtrasDAO;
+import com.prog11.bbdd.Pagina;
+import com.prog11.bbdd.PropietariosDAO;
+import com.prog11.bbdd.ResumenMarca;
+import com.prog11.bbdd.Vehiculo;
+import com.prog11.bbdd.VehiculosDAO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Lecturas de los DAO: consultas filtradas, páginas y lecturas de la tabla completa.
+ */
+@State(Scope.Thread)
+public class LecturaBenchmark {
+    private int contador;
+
+    @Benchmark
+    public List<Vehiculo> obtenerTodosLosVehiculos(BaseDatosBenchmark bd) {
+        return VehiculosDAO.obtenerTodosLosVehiculos(bd.connection);
+    }
+
+    @Benchmark
+    public long recorrerTodosLosVehiculos(BaseDatosBenchmark bd, Blackhole agujero) {
+        return VehiculosDAO.recorrerTodosLosVehiculos(bd.connection, agujero::consume);
+    }
+
+    @Benchmark
+    public List<Vehiculo> obtenerVehiculosPorMarca(BaseDatosBenchmark bd) {
+        return VehiculosDAO.obtenerVehiculosPorMarca(bd.connection,
+                BaseDatosBenchmark.MARCAS[contador++ % BaseDatosBenchmark.MARCAS.length]);
+    }
+
+    @Benchmark
+    public List<Vehiculo> obtenerVehiculosDePropietario(BaseDatosBenchmark bd) {
+        return PropietariosDAO.obtenerVehiculosDePropietario(bd.connection,
+                BaseDatosBenchmark.dni(1 + contador++ % bd.propietarios));
+    }
+
+    @Benchmark
+    public List<Vehiculo> buscarVehiculosPorPrecio(BaseDatosBenchmark bd) {
+        float desde = 5_000 + contador++ % 40_000;
+        return FuncionalidadesExtrasDAO.buscarVehiculosPorPrecio(bd.connection, desde, desde + 1_000);
+    }
+
+    @Benchmark
+    public Pagina<Vehiculo, String> obtenerPaginaVehiculos(BaseDatosBenchmark bd) {
+        String ultimaMatricula = BaseDatosBenchmark.matricula('S', contador++ % bd.vehiculos);
+        return VehiculosDAO.obtenerPaginaVehiculos(bd.connection, ultimaMatricula, 50);
+    }
+
+    @Benchmark
+    public List<List<Vehiculo>> agruparVehiculosPorMarca(BaseDatosBenchmark bd) {
+        return FuncionalidadesExtrasDAO.agruparVehiculosPorMarca(bd.connection);
+    }
+
+    @Benchmark
+    public int recorrerGruposPorMarca(BaseDatosBenchmark bd, Blackhole agujero) {
+        return FuncionalidadesExtrasDAO.recorrerGruposPorMarca(bd.connection, (marca, grupo) -> agujero.consume(grupo));
+    }
+
+    @Benchmark
+    public List<ResumenMarca> obtenerResumenPorMarca(BaseDatosBenchmark bd) {
+        return FuncionalidadesExtrasDAO.obtenerResumenPorMarca(bd.connection);
+    }
+}
@@ -0,0 +1,326 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché opcional de lectura para las consultas de vehículos por marca y por DNI del propietario.
+ * Está desactivada por defecto; se activa con {@link #activar(int, long)}.
+ * <p>
+ * Las entradas se expulsan por antigüedad de uso (LRU) al superar el tamaño máximo y caducan
+ * tras el tiempo de vida indicado. Los métodos de escritura de los DAO invalidan exactamente
+ * las entradas afectadas, incluidas las que dependen del borrado en cascada de un propietario.
+ * Cada invalidación incrementa una versión, y un resultado leído antes de una escritura no se
+ * guarda si la versión ha cambiado, por lo que una lectura nunca devuelve datos anteriores
+ * a una escritura hecha en este mismo proceso. Por el mismo motivo no se guarda lo leído de
+ * una réplica, que puede ir retrasada; esas lecturas sí se sirven desde la caché. Lo leído de la
+ * base de datos principal se guarda aunque la conexión sea de solo lectura.
+ */
+public class CacheVehiculos {
+
+    /**
+     * Resultado guardado de una consulta.
+     *
+     * @param vehiculos  Los vehículos devueltos por la consulta.
+     * @param idProp     El ID del propietario para las entradas por DNI, o 0 si no se conoce.
+     * @param caducaEn   Instante ({@link System#nanoTime()}) en que caduca la entrada.
+     */
+    private record Entrada(List<Vehiculo> vehiculos, int idProp, long caducaEn) {
+    }
+
+    private static boolean activa;
+    private static long ttlNanos;
+    private static Map<String, Entrada> porMarca;
+    private static Map<String, Entrada> porDni;
+    // Se incrementa con cada invalidación
+    private static long version;
+
+    private static long aciertos;
+    private static long fallos;
+    private static long expulsiones;
+    private static long invalidaciones;
+
+    private CacheVehiculos() {
+    }
+
+    /**
+     * Activa la caché, descartando cualquier contenido anterior.
+     *
+     * @param maxEntradas El número máximo de entradas de cada tipo (por marca y por DNI).
+     * @param ttlMs       El tiempo de vida de cada entrada, en milisegundos.
+     */
+    public static synchronized void activar(int maxEntradas, long ttlMs) {
+        if (maxEntradas < 1 || ttlMs < 1) {
+            throw new IllegalArgumentException("El tamaño y el tiempo de vida de la caché deben ser positivos");
+        }
+        ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        porMarca = crearMapa(maxEntradas);
+        porDni = crearMapa(maxEntradas);
+        aciertos = 0;
+        fallos = 0;
+        expulsiones = 0;
+        invalidaciones = 0;
+        version++;
+        activa = true;
+    }
+
+    /**
+     * Desactiva la caché y descarta su contenido.
+     */
+    public static synchronized void desactivar() {
+        activa = false;
+        porMarca = null;
+        porDni = null;
+        version++;
+    }
+
+    /**
+     * @return true si la caché está activa.
+     */
+    public static synchronized boolean estaActiva() {
+        return activa;
+    }
+
+    /**
+     * Devuelve las estadísticas de la caché.
+     *
+     * @return Aciertos, fallos, expulsiones, invalidaciones y número de entradas.
+     */
+    public static synchronized EstadisticasCache obtenerEstadisticas() {
+        int entradas = activa ? porMarca.size() + porDni.size() : 0;
+        return new EstadisticasCache(aciertos, fallos, expulsiones, invalidaciones, entradas);
+    }
+
+    // ---- Lecturas ----
+
+    /**
+     * Devuelve la versión actual, que debe obtenerse antes de consultar la base de datos
+     * y pasarse al guardar el resultado.
+     */
+    static synchronized long version() {
+        return version;
+    }
+
+    /**
+     * @return Una copia de los vehículos guardados para la marca, o null si no están en caché.
+     */
+    static synchronized List<Vehiculo> obtenerPorMarca(String marca) {
+        return activa && marca != null ? buscar(porMarca, normalizarMarca(marca)) : null;
+    }
+
+    /**
+     * @return Una copia de los vehículos guardados para el DNI, o null si no están en caché.
+     */
+    static synchronized List<Vehiculo> obtenerPorDni(String dni) {
+        return activa && dni != null ? buscar(porDni, normalizarDni(dni)) : null;
+    }
+
+    /**
+     * Guarda el resultado de una consulta por marca si no ha habido escrituras desde {@code versionLeida}
+     * y no se leyó de una réplica.
+     */
+    static void guardarPorMarca(Connection origen, String marca, List<Vehiculo> vehiculos, long versionLeida) {
+        if (!ReplicasLectura.esDeReplica(origen)) {
+            guardarPorMarca(marca, vehiculos, versionLeida);
+        }
+    }
+
+    /**
+     * Guarda el resultado de una consulta por DNI si no ha habido escrituras desde {@code versionLeida}
+     * y no se leyó de una réplica. Los vehículos deben incluir el ID del propietario
+     * para poder invalidar la entrada por ID.
+     */
+    static void guardarPorDni(Connection origen, String dni, List<Vehiculo> vehiculos, long versionLeida) {
+        if (!ReplicasLectura.esDeReplica(origen)) {
+            guardarPorDni(dni, vehiculos, versionLeida);
+        }
+    }
+
+    private static synchronized void guardarPorMarca(String marca, List<Vehiculo> vehiculos, long versionLeida) {
+        if (activa && marca != null && versionLeida == version) {
+            porMarca.put(normalizarMarca(marca), new Entrada(List.copyOf(vehiculos), 0, caducidad()));
+        }
+    }
+
+    private static synchronized void guardarPorDni(String dni, List<Vehiculo> vehiculos, long versionLeida) {
+        if (activa && dni != null && versionLeida == version) {
+            int idProp = vehiculos.isEmpty() ? 0 : vehiculos.get(0).idProp();
+            porDni.put(normalizarDni(dni), new Entrada(List.copyOf(vehiculos), idProp, caducidad()));
+        }
+    }
+
+    // ---- Invalidaciones ----
+
+    /**
+     * Invalida la consulta de una marca tras insertar o modificar un vehículo de esa marca.
+     */
+    static synchronized void invalidarMarca(String marca) {
+        version++;
+        if (activa && marca != null && porMarca.remove(normalizarMarca(marca)) != null) {
+            invalidaciones++;
+        }
+    }
+
+    /**
+     * Invalida la consulta de un DNI, por ejemplo tras insertar o eliminar ese propietario.
+     */
+    static synchronized void invalidarDni(String dni) {
+        version++;
+        if (activa && dni != null && porDni.remove(normalizarDni(dni)) != null) {
+            invalidaciones++;
+        }
+    }
+
+    /**
+     * Invalida todas las entradas que contienen el vehículo indicado.
+     */
+    static synchronized void invalidarMatricula(String matricula) {
+        version++;
+        if (activa) {
+            invalidarSi(porMarca, entrada -> contieneMatricula(entrada, matricula));
+            invalidarSi(porDni, entrada -> contieneMatricula(entrada, matricula));
+        }
+    }
+
+    /**
+     * Invalida la consulta por DNI del propietario indicado, tras asignarle un vehículo.
+     * Las entradas vacías, cuyo propietario no se conoce, también se invalidan.
+     */
+    static synchronized void invalidarPropietario(int idProp) {
+        version++;
+        if (activa) {
+            invalidarSi(porDni, entrada -> entrada.idProp() == idProp || entrada.idProp() == 0);
+        }
+    }
+
+    /**
+     * Invalida todo lo que depende de los vehículos de un propietario, tras eliminarlo
+     * y borrar sus vehículos en cascada.
+     */
+    static synchronized void invalidarVehiculosDePropietario(int idProp) {
+        version++;
+        if (activa) {
+            invalidarSi(porDni, entrada -> entrada.idProp() == idProp);
+            invalidarSi(porMarca, entrada -> {
+                for (Vehiculo vehiculo : entrada.vehiculos()) {
+                    if (vehiculo.idProp() == idProp) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Invalida toda la caché, para escrituras cuyo alcance no se conoce fila a fila.
+     */
+    static synchronized void invalidarTodo() {
+        version++;
+        if (activa) {
+            invalidaciones += porMarca.size() + porDni.size();
+            porMarca.clear();
+            porDni.clear();
+        }
+    }
+
+    // ---- Auxiliares ----
+
+    private interface CondicionEntrada {
+        boolean cumple(Entrada entrada);
+    }
+
+    private static void invalidarSi(Map<String, Entrada> mapa, CondicionEntrada condicion) {
+        Iterator<Entrada> it = mapa.values().iterator();
+        while (it.hasNext()) {
+            if (condicion.cumple(it.next())) {
+                it.remove();
+                invalidaciones++;
+            }
+        }
+    }
+
+    private static boolean contieneMatricula(Entrada entrada, String matricula) {
+        for (Vehiculo vehiculo : entrada.vehiculos()) {
+            if (vehiculo.matricula().equalsIgnoreCase(matricula)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Vehiculo> buscar(Map<String, Entrada> mapa, String clave) {
+        Entrada entrada = mapa.get(clave);
+        if (entrada != null && entrada.caducaEn() - System.nanoTime() <= 0) {
+            mapa.remove(clave);
+            expulsiones++;
+            entrada = null;
+        }
+        if (entrada == null) {
+            fallos++;
+            return null;
+        }
+        aciertos++;
+        return new ArrayList<>(entrada.vehiculos());
+    }
+
+    private static long caducidad() {
+        return System.nanoTime() + ttlNanos;
+    }
+
+    private static Map<String, Entrada> crearMapa(int maxEntradas) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> masAntigua) {
+                if (size() > maxEntradas) {
+                    expulsiones++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * La columna marca_veh usa una collation que no distingue mayúsculas, acentos
+     * ni espacios finales, así que la clave se normaliza igual.
+     */
+    static String normalizarMarca(String marca) {
+        String sinAcentos = Normalizer.normalize(marca, Normalizer.Form.NFD);
+        StringBuilder clave = new StringBuilder(sinAcentos.length());
+        for (int i = 0; i < sinAcentos.length(); i++) {
+            char c = sinAcentos.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                clave.append(c);
+            }
+        }
+        int fin = clave.length();
+        while (fin > 0 && clave.charAt(fin - 1) == ' ') {
+            fin--;
+        }
+        clave.setLength(fin);
+        return clave.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * La columna mat_veh no distingue mayúsculas ni espacios finales, así que la clave
+     * de una matrícula se normaliza igual.
+     */
+    static String claveMatricula(String matricula) {
+        return matricula.stripTrailing().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Los DNI se comparan sin espacios alrededor y sin distinguir mayúsculas.
+     */
+    static String normalizarDni(String dni) {
+        return dni.strip().toUpperCase(Locale.ROOT);
+    }
+}
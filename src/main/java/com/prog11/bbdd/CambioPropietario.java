@@ -0,0 +1,18 @@
+package com.prog11.bbdd;
+
+/**
+ * Último cambio de un propietario desde una versión dada.
+ *
+ * @param version     La versión del cambio en el registro de cambios.
+ * @param idProp      El ID del propietario.
+ * @param propietario Los datos actuales del propietario, o null si se ha borrado.
+ */
+public record CambioPropietario(long version, int idProp, Propietario propietario) {
+
+    /**
+     * @return true si el cambio es un borrado (lápida).
+     */
+    public boolean borrado() {
+        return propietario == null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.prog11.bbdd;
+
+/**
+ * Último cambio de un vehículo desde una versión dada.
+ *
+ * @param version   La versión del cambio en el registro de cambios.
+ * @param matricula La matrícula del vehículo.
+ * @param vehiculo  Los datos actuales del vehículo, o null si se ha borrado.
+ */
+public record CambioVehiculo(long version, String matricula, Vehiculo vehiculo) {
+
+    /**
+     * @return true si el cambio es un borrado (lápida).
+     */
+    public boolean borrado() {
+        return vehiculo == null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consultas sobre el registro de cambios ({@code cambios_inventario}) que mantienen los triggers
+ * de la migración 3. Permiten sincronizar una copia del inventario pidiendo solo lo que ha
+ * cambiado desde la última versión vista, en lugar de releer las tablas enteras.
+ * <p>
+ * Cada cambio devuelto es el último de su fila, con los datos actuales o como lápida si la fila
+ * se ha borrado (también por el borrado en cascada de un propietario).
+ * <p>
+ * Las versiones se asignan al escribir y no al confirmar, así que con escrituras concurrentes una
+ * transacción que confirma tarde puede dejar un cambio con una versión menor que otra ya leída.
+ * Para no perderlo, cada sincronización puede empezar con un {@code margen}: se vuelven a pedir
+ * también las últimas {@code margen} versiones anteriores a la vista. Aplicar un cambio dos veces
+ * no tiene efecto. El margen debe cubrir las versiones que se pueden asignar mientras dura la
+ * transacción de escritura más larga; las páginas siguientes de la misma sincronización se piden
+ * sin margen, desde la versión del último cambio recibido, para que la paginación avance.
+ */
+public class CambiosDAO {
+
+    /**
+     * Obtiene la versión más alta del registro de cambios.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return La última versión, 0 si no hay cambios, o -1 en caso de error.
+     */
+    public static long obtenerVersionActual(Connection connection) {
+        String sql = "SELECT COALESCE(MAX(version), 0) FROM cambios_inventario";
+        try (PreparedStatement stmt = connection.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Error al obtener la versión de cambios: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Obtiene los vehículos que han cambiado después de la versión indicada, sin margen.
+     *
+     * @see #obtenerCambiosVehiculosDesde(Connection, long, int, long)
+     */
+    public static List<CambioVehiculo> obtenerCambiosVehiculosDesde(Connection connection, long version, int limite) {
+        return obtenerCambiosVehiculosDesde(connection, version, limite, 0);
+    }
+
+    /**
+     * Obtiene los vehículos que han cambiado después de la versión indicada menos el margen,
+     * en orden de versión.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param version    La última versión ya aplicada (0 para todos los cambios registrados).
+     * @param limite     El número máximo de cambios a devolver; se piden más desde la versión del último.
+     * @param margen     Cuántas versiones anteriores a {@code version} se vuelven a pedir (0 para ninguna).
+     * @return El último cambio de cada vehículo, o null en caso de error.
+     * @throws IllegalArgumentException Si el margen es negativo.
+     */
+    public static List<CambioVehiculo> obtenerCambiosVehiculosDesde(Connection connection,
+                                                                    long version,
+                                                                    int limite,
+                                                                    long margen) {
+        comprobarMargen(margen);
+        String sql = "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, v.id_prop, c.version, c.clave " +
+                "FROM cambios_inventario c " +
+                "LEFT JOIN vehiculos v ON c.borrado = FALSE AND v.mat_veh = c.clave " +
+                "WHERE c.tabla = 'vehiculos' AND c.version > ? " +
+                "AND c.version = (SELECT MAX(u.version) FROM cambios_inventario u " +
+                "WHERE u.tabla = c.tabla AND u.clave = c.clave) " +
+                "ORDER BY c.version " +
+                "LIMIT ?";
+        List<CambioVehiculo> cambios = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_CAMBIOS_VEHICULOS)) {
+            stmt.setLong(1, Math.max(version - margen, 0));
+            stmt.setInt(2, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    // Sin fila en vehiculos es un borrado, aunque la lápida aún no se haya confirmado
+                    Vehiculo vehiculo = rs.getString(1) == null ? null : Mapeadores.VEHICULO_CON_ID_PROPIETARIO.mapear(rs);
+                    cambios.add(new CambioVehiculo(rs.getLong(6), rs.getString(7), vehiculo));
+                }
+            }
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_CAMBIOS_VEHICULOS, inicio);
+            System.err.println("Error al obtener los cambios de vehículos: " + e.getMessage());
+            return null;
+        }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_CAMBIOS_VEHICULOS, inicio, cambios.size());
+        return cambios;
+    }
+
+    /**
+     * Obtiene los propietarios que han cambiado después de la versión indicada, sin margen.
+     *
+     * @see #obtenerCambiosPropietariosDesde(Connection, long, int, long)
+     */
+    public static List<CambioPropietario> obtenerCambiosPropietariosDesde(Connection connection,
+                                                                          long version,
+                                                                          int limite) {
+        return obtenerCambiosPropietariosDesde(connection, version, limite, 0);
+    }
+
+    /**
+     * Obtiene los propietarios que han cambiado después de la versión indicada menos el margen,
+     * en orden de versión.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param version    La última versión ya aplicada (0 para todos los cambios registrados).
+     * @param limite     El número máximo de cambios a devolver; se piden más desde la versión del último.
+     * @param margen     Cuántas versiones anteriores a {@code version} se vuelven a pedir (0 para ninguna).
+     * @return El último cambio de cada propietario, o null en caso de error.
+     * @throws IllegalArgumentException Si el margen es negativo.
+     */
+    public static List<CambioPropietario> obtenerCambiosPropietariosDesde(Connection connection,
+                                                                          long version,
+                                                                          int limite,
+                                                                          long margen) {
+        comprobarMargen(margen);
+        String sql = "SELECT p.id_prop, p.nombre_prop, p.dni_prop, c.version, c.clave " +
+                "FROM cambios_inventario c " +
+                "LEFT JOIN propietarios p ON c.borrado = FALSE AND p.id_prop = CAST(c.clave AS UNSIGNED) " +
+                "WHERE c.tabla = 'propietarios' AND c.version > ? " +
+                "AND c.version = (SELECT MAX(u.version) FROM cambios_inventario u " +
+                "WHERE u.tabla = c.tabla AND u.clave = c.clave) " +
+                "ORDER BY c.version " +
+                "LIMIT ?";
+        List<CambioPropietario> cambios = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_CAMBIOS_PROPIETARIOS)) {
+            stmt.setLong(1, Math.max(version - margen, 0));
+            stmt.setInt(2, limite);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Propietario propietario = rs.getString(1) == null ? null : Mapeadores.PROPIETARIO.mapear(rs);
+                    cambios.add(new CambioPropietario(rs.getLong(4), Integer.parseInt(rs.getString(5)), propietario));
+                }
+            }
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_CAMBIOS_PROPIETARIOS, inicio);
+            System.err.println("Error al obtener los cambios de propietarios: " + e.getMessage());
+            return null;
+        }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_CAMBIOS_PROPIETARIOS, inicio, cambios.size());
+        return cambios;
+    }
+
+    private static void comprobarMargen(long margen) {
+        if (margen < 0) {
+            throw new IllegalArgumentException("El margen de versiones no puede ser negativo: " + margen);
+        }
+    }
+
+    /**
+     * Borra del registro los cambios que ya tienen otro posterior para la misma fila. El último
+     * cambio de cada fila, incluidas las lápidas, se conserva, así que el resultado de
+     * {@link #obtenerCambiosVehiculosDesde(Connection, long, int)} no varía.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return El número de cambios borrados, o -1 en caso de error.
+     */
+    public static int compactarCambios(Connection connection) {
+        String sql = "DELETE c FROM cambios_inventario c " +
+                "JOIN cambios_inventario n ON n.tabla = c.tabla AND n.clave = c.clave AND n.version > c.version";
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, OperacionDAO.COMPACTAR_CAMBIOS)) {
+            int result = stmt.executeUpdate();
+            MetricasDAO.registrar(OperacionDAO.COMPACTAR_CAMBIOS, inicio, result);
+            return result;
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.COMPACTAR_CAMBIOS, inicio);
+            System.err.println("Error al compactar el registro de cambios: " + e.getMessage());
+            return -1;
+        }
+    }
+}
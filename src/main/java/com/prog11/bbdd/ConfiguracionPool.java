@@ -0,0 +1,42 @@
+package com.prog11.bbdd;
+
+/**
+ * Parámetros de configuración del pool de conexiones.
+ *
+ * @param tamanoMinimo            Número mínimo de conexiones físicas que se mantienen abiertas.
+ * @param tamanoMaximo            Número máximo de conexiones prestadas a la vez.
+ * @param timeoutAdquisicionMs    Tiempo máximo de espera para obtener una conexión, en milisegundos.
+ * @param tiempoMaxInactividadMs  Tiempo que una conexión puede estar inactiva antes de cerrarse, en milisegundos.
+ * @param timeoutValidacionSeg    Tiempo máximo para validar una conexión al prestarla, en segundos.
+ */
+public record ConfiguracionPool(int tamanoMinimo,
+                                int tamanoMaximo,
+                                long timeoutAdquisicionMs,
+                                long tiempoMaxInactividadMs,
+                                int timeoutValidacionSeg) {
+
+    public ConfiguracionPool {
+        if (tamanoMinimo < 0 || tamanoMaximo < 1 || tamanoMinimo > tamanoMaximo) {
+            throw new IllegalArgumentException("Tamaños de pool no válidos: mínimo=" + tamanoMinimo
+                    + ", máximo=" + tamanoMaximo);
+        }
+        if (timeoutAdquisicionMs < 0 || tiempoMaxInactividadMs < 1 || timeoutValidacionSeg < 0) {
+            throw new IllegalArgumentException("Los tiempos del pool no pueden ser negativos");
+        }
+    }
+
+    /**
+     * Crea la configuración por defecto. Cada valor puede sobrescribirse con una propiedad
+     * del sistema (por ejemplo {@code -Dconcesionario.pool.max=20}).
+     *
+     * @return La configuración por defecto del pool.
+     */
+    public static ConfiguracionPool porDefecto() {
+        return new ConfiguracionPool(
+                Integer.getInteger("concesionario.pool.min", 2),
+                Integer.getInteger("concesionario.pool.max", 10),
+                Long.getLong("concesionario.pool.timeoutAdquisicionMs", 5_000L),
+                Long.getLong("concesionario.pool.tiempoMaxInactividadMs", 300_000L),
+                Integer.getInteger("concesionario.pool.timeoutValidacionSeg", 2));
+    }
+}
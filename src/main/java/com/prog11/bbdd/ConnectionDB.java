@@ -1,37 +1,92 @@
 package com.prog11.bbdd;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Esta clase proporciona métodos para abrir y cerrar conexiones
  * con la base de datos MariaDB. Se utiliza para establecer y
  * cerrar conexiones con la base de datos de un concesionario.
+ * Las conexiones se prestan desde un {@link PoolConexiones} compartido,
+ * por lo que pueden pedirse y devolverse desde varios hilos sin coste de reconexión.
+ * <p>
+ * Si se indican réplicas de lectura con {@code -Dconcesionario.db.replicas=url1,url2}, las
+ * conexiones de {@link #openReadConnection()} se reparten entre ellas y las de
+ * {@link #openConnection()} siguen yendo a la base de datos principal.
  */
 public class ConnectionDB {
-    // URL de conexión a la base de datos
-    private static final String URL = "jdbc:mariadb://localhost/concesionario";
+    // URL de conexión a la base de datos. Con useServerPrepStmts las sentencias se preparan en el servidor,
+    // que es lo que aprovecha la caché de sentencias de SesionDAO
+    private static final String URL = System.getProperty("concesionario.db.url",
+            "jdbc:mariadb://localhost/concesionario?useBulkStmtsForInserts=true&useServerPrepStmts=true");
     // Usuario para la conexión
-    private static final String USER = "root";
+    private static final String USER = System.getProperty("concesionario.db.usuario", "root");
     // Contraseña para la conexión
-    private static final String PASSWORD = "root";
+    private static final String PASSWORD = System.getProperty("concesionario.db.password", "root");
+    // URL de las réplicas de lectura, separadas por comas, con el mismo usuario y contraseña
+    private static final String REPLICAS = System.getProperty("concesionario.db.replicas", "");
+    // Tiempo entre comprobaciones del estado de las réplicas
+    private static final long COMPROBACION_REPLICAS_MS = Long.getLong("concesionario.db.replicas.comprobacionMs",
+            5_000L);
+
+    // Pool compartido, creado con la configuración por defecto la primera vez que se usa
+    private static volatile PoolConexiones pool;
+    // Pools de las réplicas, creados a la vez que el pool principal
+    private static volatile ReplicasLectura replicas;
 
     /**
      * Abre una conexión a la base de datos utilizando la URL, el usuario y la contraseña definidos.
+     * La conexión se toma del pool; al cerrarla con {@link #closeConnection(Connection)} vuelve a él.
      *
      * @return Un objeto {@link Connection} si la conexión es exitosa, o null si hay un error.
      */
     public static Connection openConnection() {
         Connection connection = null;
         try {
-            connection = DriverManager.getConnection(URL, USER, PASSWORD);
+            connection = obtenerPool().prestar();
         } catch (SQLException e) {
             System.err.println("Error al conectar con la base de datos: " + e.getMessage());
         }
         return connection;
     }
 
+    /**
+     * Abre una conexión de solo lectura para consultas, listados e informes. Se toma de la siguiente
+     * réplica disponible o, si no hay réplicas o ninguna responde, de la base de datos principal.
+     * Una réplica puede ir algo retrasada respecto a la principal; para leer lo que se acaba de
+     * escribir hay que usar una {@link SesionConexiones}.
+     *
+     * @return Una conexión marcada como de solo lectura, o null si hay un error.
+     */
+    public static Connection openReadConnection() {
+        ReplicasLectura actuales = obtenerReplicas();
+        Connection connection = actuales != null ? actuales.prestar() : null;
+        if (connection == null) {
+            connection = openConnection();
+        }
+        if (connection != null) {
+            try {
+                connection.setReadOnly(true);
+            } catch (SQLException e) {
+                System.err.println("Error al marcar la conexión como de solo lectura: " + e.getMessage());
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Abre una sesión que toma conexiones de lectura y de escritura según se necesiten.
+     *
+     * @param leerTrasEscribir true para que, una vez pedida una conexión de escritura, las lecturas
+     *                         de la sesión se hagan también en la base de datos principal y vean lo escrito.
+     * @return La sesión, que debe cerrarse al terminar.
+     */
+    public static SesionConexiones abrirSesion(boolean leerTrasEscribir) {
+        return new SesionConexiones(leerTrasEscribir);
+    }
+
     /**
      * Cierra una conexión abierta a la base de datos.
      *
@@ -46,4 +101,86 @@ public class ConnectionDB {
             }
         }
     }
+
+    /**
+     * Sustituye el pool de conexiones por uno nuevo con la configuración indicada.
+     * Las conexiones libres del pool anterior se cierran.
+     *
+     * @param configuracion La configuración del nuevo pool.
+     */
+    public static synchronized void configurarPool(ConfiguracionPool configuracion) {
+        cerrarPool();
+        crearPools(configuracion);
+    }
+
+    /**
+     * Obtiene las estadísticas del pool de conexiones (activas, inactivas y tiempos de espera).
+     *
+     * @return Las estadísticas actuales del pool.
+     */
+    public static EstadisticasPool obtenerEstadisticasPool() {
+        return obtenerPool().obtenerEstadisticas();
+    }
+
+    /**
+     * Obtiene la configuración del pool de conexiones actual.
+     *
+     * @return La configuración del pool.
+     */
+    public static ConfiguracionPool obtenerConfiguracionPool() {
+        return obtenerPool().obtenerConfiguracion();
+    }
+
+    /**
+     * Obtiene el estado de las réplicas de lectura y las estadísticas de sus pools.
+     *
+     * @return El estado de cada réplica, vacío si no hay réplicas configuradas.
+     */
+    public static List<EstadoReplica> obtenerEstadoReplicas() {
+        ReplicasLectura actuales = obtenerReplicas();
+        return actuales != null ? actuales.obtenerEstado() : List.of();
+    }
+
+    /**
+     * Cierra el pool de conexiones y los de las réplicas. Un uso posterior de {@link #openConnection()}
+     * crea pools nuevos.
+     */
+    public static synchronized void cerrarPool() {
+        if (pool != null) {
+            pool.close();
+            replicas.close();
+            pool = null;
+            replicas = null;
+        }
+    }
+
+    private static PoolConexiones obtenerPool() {
+        PoolConexiones actual = pool;
+        if (actual == null) {
+            synchronized (ConnectionDB.class) {
+                actual = pool;
+                if (actual == null) {
+                    actual = crearPools(ConfiguracionPool.porDefecto());
+                }
+            }
+        }
+        return actual;
+    }
+
+    private static ReplicasLectura obtenerReplicas() {
+        obtenerPool();
+        return replicas;
+    }
+
+    private static PoolConexiones crearPools(ConfiguracionPool configuracion) {
+        List<String> urls = new ArrayList<>();
+        for (String url : REPLICAS.split(",")) {
+            if (!url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        replicas = new ReplicasLectura(urls, USER, PASSWORD, configuracion, COMPROBACION_REPLICAS_MS);
+        pool = new PoolConexiones(URL, USER, PASSWORD, configuracion);
+        return pool;
+    }
 }
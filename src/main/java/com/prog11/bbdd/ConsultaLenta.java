@@ -0,0 +1,35 @@
+package com.prog11.bbdd;
+
+import java.util.List;
+
+/**
+ * Llamada a la base de datos que ha superado el umbral del registro de consultas lentas.
+ *
+ * @param operacion  La operación del DAO que la ejecutó.
+ * @param sql        La sentencia.
+ * @param parametros Los valores de los parámetros (los de la última fila, en un lote).
+ * @param duracionMs La duración de la ejecución, en milisegundos.
+ * @param agotada    true si se interrumpió por agotar su tiempo máximo.
+ * @param plan       El {@code EXPLAIN} de la sentencia, una línea por fila, o vacío si no se capturó.
+ * @param instanteMs El instante en que terminó, en milisegundos desde la época.
+ */
+public record ConsultaLenta(OperacionDAO operacion,
+                            String sql,
+                            List<Object> parametros,
+                            long duracionMs,
+                            boolean agotada,
+                            List<String> plan,
+                            long instanteMs) {
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder(256)
+                .append("Consulta lenta (").append(operacion.metodo()).append(", ").append(duracionMs).append(" ms")
+                .append(agotada ? ", tiempo agotado" : "").append("): ")
+                .append(sql).append(" ").append(parametros);
+        for (String fila : plan) {
+            texto.append("\n  ").append(fila);
+        }
+        return texto.toString();
+    }
+}
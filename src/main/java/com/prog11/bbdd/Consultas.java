@@ -0,0 +1,161 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Utilidades para recorrer resultados fila a fila sin cargarlos enteros en memoria.
+ * El driver lee las filas en bloques del tamaño de fetch indicado, por lo que la
+ * memoria usada no depende del número de filas de la consulta.
+ */
+class Consultas {
+
+    // Número de filas que el driver trae en cada bloque al recorrer un resultado
+    static final int TAMANO_FETCH_POR_DEFECTO = 500;
+
+    private Consultas() {
+    }
+
+    /**
+     * Prepara una consulta de solo lectura y solo avance con el tamaño de fetch indicado.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param sql         La consulta a preparar.
+     * @param tamanoFetch El número de filas que se leen en cada bloque.
+     * @return La sentencia preparada.
+     * @throws SQLException Si falla la preparación.
+     */
+    static PreparedStatement prepararLectura(Connection connection, String sql, int tamanoFetch) throws SQLException {
+        PreparedStatement stmt = connection.prepareStatement(sql,
+                ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(tamanoFetch);
+        return stmt;
+    }
+
+    /**
+     * Prepara una consulta de solo lectura como {@link #prepararLectura(Connection, String, int)},
+     * bajo el control de {@link ControlConsultas} para la operación indicada.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param sql         La consulta a preparar.
+     * @param tamanoFetch El número de filas que se leen en cada bloque.
+     * @param operacion   La operación del DAO que la ejecuta.
+     * @return La sentencia preparada.
+     * @throws SQLException Si falla la preparación o la operación está cancelada.
+     */
+    static PreparedStatement prepararLectura(Connection connection,
+                                             String sql,
+                                             int tamanoFetch,
+                                             OperacionDAO operacion) throws SQLException {
+        return ControlConsultas.vigilar(prepararLectura(connection, sql, tamanoFetch), connection, sql, operacion);
+    }
+
+    /**
+     * Ejecuta la consulta y entrega cada fila a la acción indicada a medida que se lee.
+     *
+     * @param stmt     La consulta preparada, con los parámetros ya asignados.
+     * @param mapeador Convierte cada fila en un objeto.
+     * @param accion   La acción que recibe cada objeto.
+     * @param <T>      El tipo de los objetos.
+     * @return El número de filas procesadas.
+     * @throws SQLException Si falla la consulta o la lectura de una fila.
+     */
+    static <T> long recorrer(PreparedStatement stmt,
+                             MapeadorFila<T> mapeador,
+                             Consumer<? super T> accion) throws SQLException {
+        long filas = 0;
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                accion.accept(mapeador.mapear(rs));
+                filas++;
+            }
+        }
+        return filas;
+    }
+
+    /**
+     * Ejecuta la consulta y devuelve un {@link Stream} que lee las filas bajo demanda.
+     * Al cerrar el stream se cierran el resultado y la sentencia; la conexión no se cierra.
+     * Mientras el stream esté abierto la conexión no debe usarse para otras consultas.
+     *
+     * @param stmt     La consulta preparada, con los parámetros ya asignados.
+     * @param mapeador Convierte cada fila en un objeto.
+     * @param <T>      El tipo de los objetos.
+     * @return Un stream ordenado de los objetos leídos.
+     * @throws SQLException Si falla la ejecución de la consulta; en ese caso la sentencia se cierra.
+     */
+    static <T> Stream<T> stream(PreparedStatement stmt, MapeadorFila<T> mapeador) throws SQLException {
+        return stream(stmt, mapeador, null, 0);
+    }
+
+    /**
+     * Igual que {@link #stream(PreparedStatement, MapeadorFila)}, pero al cerrar el stream registra
+     * la llamada en {@link MetricasDAO} con las filas leídas y el tiempo hasta el cierre.
+     *
+     * @param stmt      La consulta preparada, con los parámetros ya asignados.
+     * @param mapeador  Convierte cada fila en un objeto.
+     * @param operacion La operación a registrar, o null para no registrar nada.
+     * @param inicio    El instante de inicio de la operación ({@link System#nanoTime()}).
+     * @param <T>       El tipo de los objetos.
+     * @return Un stream ordenado de los objetos leídos.
+     * @throws SQLException Si falla la ejecución de la consulta; en ese caso la sentencia se cierra.
+     */
+    static <T> Stream<T> stream(PreparedStatement stmt,
+                                MapeadorFila<T> mapeador,
+                                OperacionDAO operacion,
+                                long inicio) throws SQLException {
+        ResultSet rs;
+        try {
+            rs = stmt.executeQuery();
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+        class Filas extends Spliterators.AbstractSpliterator<T> {
+            private long leidas;
+            private boolean fallo;
+
+            Filas() {
+                super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            }
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> accion) {
+                try {
+                    if (!rs.next()) {
+                        return false;
+                    }
+                    accion.accept(mapeador.mapear(rs));
+                    leidas++;
+                    return true;
+                } catch (SQLException e) {
+                    fallo = true;
+                    throw new IllegalStateException("Error al leer la siguiente fila: " + e.getMessage(), e);
+                }
+            }
+        }
+        Filas filas = new Filas();
+        return StreamSupport.stream(filas, false).onClose(() -> {
+            if (operacion != null) {
+                if (filas.fallo) {
+                    MetricasDAO.registrarError(operacion, inicio);
+                } else {
+                    MetricasDAO.registrar(operacion, inicio, filas.leidas);
+                }
+            }
+            try (stmt; rs) {
+                // Solo se usa para cerrar primero el resultado y después la sentencia
+            } catch (SQLException e) {
+                System.err.println("Error al cerrar la consulta: " + e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,291 @@
+package com.prog11.bbdd;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Controla la ejecución de las sentencias de los DAO: tiempo máximo por operación, cancelación con
+ * {@link TokenCancelacion} y registro de consultas lentas con su plan de ejecución.
+ * <p>
+ * El tiempo máximo se aplica con {@link java.sql.Statement#setQueryTimeout(int)}; con MariaDB el
+ * servidor interrumpe la sentencia y el DAO termina con error. Por defecto es de 30 segundos
+ * (propiedad {@code concesionario.db.timeoutSegundos}), salvo en los recorridos, streams y
+ * exportaciones del inventario, que no tienen límite porque su duración crece con la tabla.
+ * <p>
+ * Cada ejecución que tarda al menos el umbral (1000 ms por defecto, propiedad
+ * {@code concesionario.db.umbralLentoMs}) se guarda con su SQL, los valores de sus parámetros, la
+ * duración y el {@code EXPLAIN}, que se obtiene al cerrar la sentencia. Se conservan las últimas
+ * {@value #MAX_CONSULTAS_LENTAS} y además se escriben en la salida de errores.
+ */
+public class ControlConsultas {
+    private static final int MAX_CONSULTAS_LENTAS = 100;
+
+    // Operaciones que recorren tablas enteras y por defecto no tienen tiempo máximo
+    private static final Set<OperacionDAO> SIN_LIMITE_POR_DEFECTO = EnumSet.of(
+            OperacionDAO.RECORRER_TODOS_LOS_VEHICULOS,
+            OperacionDAO.STREAM_TODOS_LOS_VEHICULOS,
+            OperacionDAO.RECORRER_GRUPOS_POR_MARCA,
+            OperacionDAO.RECORRER_INVENTARIO,
+            OperacionDAO.STREAM_INVENTARIO,
+            OperacionDAO.EXPORTAR_INVENTARIO,
+            OperacionDAO.EXPORTAR_INVENTARIO_PARALELO,
+            OperacionDAO.EXPORTAR_INVENTARIO_POR_PARTICIONES);
+
+    private static final AtomicIntegerArray TIMEOUTS = new AtomicIntegerArray(OperacionDAO.values().length);
+    private static volatile long umbralLentoMs = Long.getLong("concesionario.db.umbralLentoMs", 1000);
+    private static volatile boolean capturarPlan = true;
+    private static final Deque<ConsultaLenta> CONSULTAS_LENTAS = new ArrayDeque<>();
+
+    static {
+        int porDefecto = Integer.getInteger("concesionario.db.timeoutSegundos", 30);
+        for (OperacionDAO operacion : OperacionDAO.values()) {
+            TIMEOUTS.set(operacion.ordinal(), SIN_LIMITE_POR_DEFECTO.contains(operacion) ? 0 : porDefecto);
+        }
+    }
+
+    private ControlConsultas() {
+    }
+
+    /**
+     * Cambia el tiempo máximo de cada sentencia de una operación.
+     *
+     * @param operacion La operación.
+     * @param segundos  El tiempo máximo en segundos, o 0 para no limitarlo.
+     */
+    public static void configurarTimeout(OperacionDAO operacion, int segundos) {
+        if (segundos < 0) {
+            throw new IllegalArgumentException("El tiempo máximo no puede ser negativo: " + segundos);
+        }
+        TIMEOUTS.set(operacion.ordinal(), segundos);
+    }
+
+    /**
+     * @param operacion La operación.
+     * @return El tiempo máximo de cada sentencia de la operación en segundos, o 0 si no tiene límite.
+     */
+    public static int obtenerTimeout(OperacionDAO operacion) {
+        return TIMEOUTS.get(operacion.ordinal());
+    }
+
+    /**
+     * Configura el registro de consultas lentas.
+     *
+     * @param umbralMs El tiempo a partir del cual una ejecución se registra, en milisegundos,
+     *                 o un valor negativo para desactivar el registro.
+     * @param plan     true para obtener el {@code EXPLAIN} de cada consulta registrada.
+     */
+    public static void configurarRegistroLento(long umbralMs, boolean plan) {
+        umbralLentoMs = umbralMs;
+        capturarPlan = plan;
+    }
+
+    /**
+     * @return Las últimas consultas lentas registradas, de la más antigua a la más reciente.
+     */
+    public static List<ConsultaLenta> obtenerConsultasLentas() {
+        synchronized (CONSULTAS_LENTAS) {
+            return new ArrayList<>(CONSULTAS_LENTAS);
+        }
+    }
+
+    /**
+     * Descarta las consultas lentas registradas.
+     */
+    public static void vaciarConsultasLentas() {
+        synchronized (CONSULTAS_LENTAS) {
+            CONSULTAS_LENTAS.clear();
+        }
+    }
+
+    /**
+     * Prepara una sentencia de una operación bajo el control de esta clase.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param sql        La sentencia a preparar.
+     * @param operacion  La operación del DAO que la ejecuta.
+     * @return La sentencia preparada.
+     * @throws SQLException Si falla la preparación o el token de cancelación del hilo está cancelado.
+     */
+    static PreparedStatement preparar(Connection connection, String sql, OperacionDAO operacion) throws SQLException {
+        return vigilar(connection.prepareStatement(sql), connection, sql, operacion);
+    }
+
+    /**
+     * Aplica el tiempo máximo de la operación a una sentencia ya preparada y la envuelve para
+     * comprobar la cancelación y medir cada ejecución.
+     *
+     * @param stmt       La sentencia preparada.
+     * @param connection La conexión de la sentencia, que se usa para obtener el plan.
+     * @param sql        El SQL de la sentencia.
+     * @param operacion  La operación del DAO que la ejecuta.
+     * @return La sentencia envuelta; al cerrarla se cierra la original.
+     * @throws SQLException Si falla la configuración o el token de cancelación del hilo está cancelado.
+     */
+    static PreparedStatement vigilar(PreparedStatement stmt,
+                                     Connection connection,
+                                     String sql,
+                                     OperacionDAO operacion) throws SQLException {
+        TokenCancelacion token = TokenCancelacion.actual();
+        try {
+            stmt.setQueryTimeout(obtenerTimeout(operacion));
+            if (token != null) {
+                token.registrar(stmt);
+            }
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(ControlConsultas.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new SentenciaVigilada(stmt, connection, sql, operacion, token));
+    }
+
+    private static void registrar(ConsultaLenta consulta) {
+        synchronized (CONSULTAS_LENTAS) {
+            if (CONSULTAS_LENTAS.size() == MAX_CONSULTAS_LENTAS) {
+                CONSULTAS_LENTAS.removeFirst();
+            }
+            CONSULTAS_LENTAS.addLast(consulta);
+        }
+        System.err.println(consulta);
+    }
+
+    /**
+     * Intercepta una sentencia para guardar los parámetros, medir las ejecuciones y registrar la más
+     * lenta al cerrarla, cuando ya se puede usar la conexión para el {@code EXPLAIN}.
+     */
+    private static final class SentenciaVigilada implements InvocationHandler {
+        private final PreparedStatement sentencia;
+        private final Connection connection;
+        private final String sql;
+        private final OperacionDAO operacion;
+        private final TokenCancelacion token;
+        private final List<Object> parametros = new ArrayList<>();
+        // La ejecución más lenta por encima del umbral, pendiente de registrar
+        private List<Object> parametrosLenta;
+        private long duracionLentaMs = -1;
+        private boolean agotadaLenta;
+
+        SentenciaVigilada(PreparedStatement sentencia,
+                          Connection connection,
+                          String sql,
+                          OperacionDAO operacion,
+                          TokenCancelacion token) {
+            this.sentencia = sentencia;
+            this.connection = connection;
+            this.sql = sql;
+            this.operacion = operacion;
+            this.token = token;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] argumentos) throws Throwable {
+            String nombre = metodo.getName();
+            if (nombre.startsWith("execute")) {
+                return ejecutar(metodo, argumentos);
+            }
+            if (nombre.startsWith("set") && argumentos != null && argumentos.length >= 2
+                    && argumentos[0] instanceof Integer) {
+                guardarParametro((Integer) argumentos[0], nombre.equals("setNull") ? null : argumentos[1]);
+            } else if (nombre.equals("clearParameters")) {
+                parametros.clear();
+            } else if (nombre.equals("close")) {
+                cerrar();
+                return null;
+            } else if (nombre.equals("equals")) {
+                return proxy == argumentos[0];
+            } else if (nombre.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            return invocar(metodo, argumentos);
+        }
+
+        private Object ejecutar(Method metodo, Object[] argumentos) throws Throwable {
+            if (token != null) {
+                token.comprobar();
+            }
+            long inicio = System.nanoTime();
+            boolean agotada = false;
+            try {
+                return invocar(metodo, argumentos);
+            } catch (SQLException e) {
+                // Algunos drivers informan de la cancelación como tiempo agotado, así que se mira antes el token
+                if (token != null && token.cancelado()) {
+                    throw new SQLException("Operación cancelada", TokenCancelacion.ESTADO_CANCELADA, e);
+                }
+                agotada = e instanceof SQLTimeoutException;
+                throw e;
+            } finally {
+                long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+                long umbral = umbralLentoMs;
+                if (umbral >= 0 && (duracionMs >= umbral || agotada) && duracionMs > duracionLentaMs) {
+                    parametrosLenta = new ArrayList<>(parametros);
+                    duracionLentaMs = duracionMs;
+                    agotadaLenta = agotada;
+                }
+            }
+        }
+
+        private void guardarParametro(int indice, Object valor) {
+            while (parametros.size() < indice) {
+                parametros.add(null);
+            }
+            parametros.set(indice - 1, valor instanceof InputStream || valor instanceof Reader
+                    ? "<" + valor.getClass().getSimpleName() + ">" : valor);
+        }
+
+        private void cerrar() throws SQLException {
+            if (token != null) {
+                token.retirar(sentencia);
+            }
+            try {
+                sentencia.close();
+            } finally {
+                if (parametrosLenta != null) {
+                    List<Object> lenta = parametrosLenta;
+                    parametrosLenta = null;
+                    registrar(new ConsultaLenta(operacion, sql, lenta, duracionLentaMs, agotadaLenta,
+                            obtenerPlan(lenta), System.currentTimeMillis()));
+                }
+            }
+        }
+
+        private List<String> obtenerPlan(List<Object> valores) {
+            String inicio = sql.stripLeading().toUpperCase(Locale.ROOT);
+            boolean explicable = inicio.startsWith("SELECT") || inicio.startsWith("UPDATE")
+                    || inicio.startsWith("DELETE") || inicio.startsWith("INSERT");
+            if (!capturarPlan || !explicable) {
+                return List.of();
+            }
+            try {
+                return PlanesConsulta.explicar(connection, sql, valores.toArray());
+            } catch (SQLException e) {
+                return List.of("Plan no disponible: " + e.getMessage());
+            }
+        }
+
+        private Object invocar(Method metodo, Object[] argumentos) throws Throwable {
+            try {
+                return metodo.invoke(sentencia, argumentos);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
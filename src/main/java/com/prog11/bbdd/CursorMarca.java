@@ -0,0 +1,20 @@
+package com.prog11.bbdd;
+
+/**
+ * Cursor de la paginación por marca: la marca y la matrícula del último vehículo leído.
+ *
+ * @param marca     La marca del último vehículo de la página.
+ * @param matricula La matrícula del último vehículo de la página.
+ */
+public record CursorMarca(String marca, String matricula) {
+
+    /**
+     * Crea el cursor que apunta al vehículo indicado.
+     *
+     * @param vehiculo El último vehículo de una página.
+     * @return El cursor de ese vehículo.
+     */
+    public static CursorMarca de(Vehiculo vehiculo) {
+        return new CursorMarca(vehiculo.marca(), vehiculo.matricula());
+    }
+}
@@ -0,0 +1,331 @@
+package com.prog11.bbdd;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Fachada asíncrona sobre {@link VehiculosDAO}, {@link PropietariosDAO} y {@link FuncionalidadesExtrasDAO}.
+ * <p>
+ * Cada operación se ejecuta en un ejecutor propio con una conexión prestada por {@link ConnectionDB}
+ * y devuelve un {@link CompletableFuture} con el mismo resultado que el método síncrono. Si el entorno
+ * de ejecución ofrece hilos virtuales se usa un hilo virtual por tarea; si no, un pool fijo de hilos.
+ * En ambos casos, como mucho {@code concurrencia} operaciones usan la base de datos a la vez.
+ * <p>
+ * Las consultas usan conexiones de {@link ConnectionDB#openReadConnection()}, que se reparten entre
+ * las réplicas de lectura si las hay; las escrituras van siempre a la base de datos principal.
+ * <p>
+ * Las operaciones admitidas (en ejecución o en espera) están acotadas. Cuando se alcanza el límite,
+ * la operación se rechaza y el futuro se completa con una {@link RejectedExecutionException}.
+ */
+public class DAOAsincrono implements AutoCloseable {
+    // Operaciones en espera por cada una en ejecución en la configuración por defecto
+    private static final int ESPERA_POR_CONEXION = 10;
+
+    private final ExecutorService ejecutor;
+    // Limita las operaciones admitidas (en ejecución más en espera)
+    private final Semaphore admitidas;
+    // Limita las operaciones que usan una conexión a la vez; null con el pool fijo, que ya lo limita
+    private final Semaphore enEjecucion;
+    private final boolean hilosVirtuales;
+    private final LongAdder rechazadas = new LongAdder();
+
+    /**
+     * Crea la fachada con una concurrencia igual al tamaño máximo del pool de conexiones.
+     *
+     * @return La fachada asíncrona.
+     */
+    public static DAOAsincrono porDefecto() {
+        int concurrencia = ConnectionDB.obtenerConfiguracionPool().tamanoMaximo();
+        return new DAOAsincrono(concurrencia, concurrencia * ESPERA_POR_CONEXION);
+    }
+
+    /**
+     * Crea la fachada asíncrona.
+     *
+     * @param concurrencia  El número máximo de operaciones en ejecución a la vez. No debería superar
+     *                      el tamaño máximo del pool de conexiones.
+     * @param capacidadCola El número máximo de operaciones en espera antes de rechazar nuevas.
+     */
+    public DAOAsincrono(int concurrencia, int capacidadCola) {
+        if (concurrencia < 1 || capacidadCola < 0) {
+            throw new IllegalArgumentException("Concurrencia o capacidad de cola no válidas: concurrencia="
+                    + concurrencia + ", cola=" + capacidadCola);
+        }
+        this.admitidas = new Semaphore(concurrencia + capacidadCola);
+        ExecutorService virtual = crearEjecutorVirtual();
+        this.hilosVirtuales = virtual != null;
+        if (hilosVirtuales) {
+            this.ejecutor = virtual;
+            this.enEjecucion = new Semaphore(concurrencia, true);
+        } else {
+            this.ejecutor = Executors.newFixedThreadPool(concurrencia, new FabricaHilos());
+            this.enEjecucion = null;
+        }
+    }
+
+    /**
+     * Ejecuta una operación con una conexión del pool, que se devuelve al terminar.
+     *
+     * @param operacion La operación, que recibe la conexión y devuelve el resultado.
+     * @param <T>       El tipo del resultado.
+     * @return Un futuro con el resultado de la operación. Se completa con error si la operación se rechaza
+     * o no se puede obtener una conexión.
+     */
+    public <T> CompletableFuture<T> ejecutar(Function<Connection, T> operacion) {
+        return enviar(operacion, false);
+    }
+
+    /**
+     * Ejecuta una operación de solo lectura con una conexión de {@link ConnectionDB#openReadConnection()},
+     * que se devuelve al terminar.
+     *
+     * @param operacion La consulta, que recibe la conexión y devuelve el resultado.
+     * @param <T>       El tipo del resultado.
+     * @return Un futuro con el resultado de la consulta.
+     */
+    public <T> CompletableFuture<T> ejecutarLectura(Function<Connection, T> operacion) {
+        return enviar(operacion, true);
+    }
+
+    /**
+     * Ejecuta una operación como {@link #ejecutar(Function)}, con el token vinculado al hilo que la ejecuta.
+     * Cancelar el token cancela las sentencias en curso de la operación y evita las siguientes.
+     *
+     * @param token     El token de cancelación de la operación.
+     * @param operacion La operación, que recibe la conexión y devuelve el resultado.
+     * @param <T>       El tipo del resultado.
+     * @return Un futuro con el resultado de la operación.
+     */
+    public <T> CompletableFuture<T> ejecutar(TokenCancelacion token, Function<Connection, T> operacion) {
+        return ejecutar(conn -> {
+            TokenCancelacion.Vinculo vinculo = token.vincular();
+            try {
+                return operacion.apply(conn);
+            } finally {
+                vinculo.close();
+            }
+        });
+    }
+
+    /**
+     * @return true si las operaciones se ejecutan en hilos virtuales.
+     */
+    public boolean usaHilosVirtuales() {
+        return hilosVirtuales;
+    }
+
+    /**
+     * @return El número de operaciones rechazadas por superar el límite de operaciones pendientes.
+     */
+    public long obtenerRechazadas() {
+        return rechazadas.sum();
+    }
+
+    // ---- VehiculosDAO ----
+
+    /**
+     * Versión asíncrona de {@link VehiculosDAO#insertarVehiculo(Connection, String, String, int, float, int)}.
+     */
+    public CompletableFuture<Integer> insertarVehiculo(String matricula, String marca, int kms, float precio, int idProp) {
+        return ejecutar(conn -> VehiculosDAO.insertarVehiculo(conn, matricula, marca, kms, precio, idProp));
+    }
+
+    /**
+     * Versión asíncrona de {@link VehiculosDAO#eliminarVehiculo(Connection, String)}.
+     */
+    public CompletableFuture<Integer> eliminarVehiculo(String matricula) {
+        return ejecutar(conn -> VehiculosDAO.eliminarVehiculo(conn, matricula));
+    }
+
+    /**
+     * Versión asíncrona de {@link VehiculosDAO#actualizarPropietarioVehiculo(Connection, String, int)}.
+     */
+    public CompletableFuture<Integer> actualizarPropietarioVehiculo(String matricula, int idProp) {
+        return ejecutar(conn -> VehiculosDAO.actualizarPropietarioVehiculo(conn, matricula, idProp));
+    }
+
+    /**
+     * Versión asíncrona de {@link VehiculosDAO#obtenerTodosLosVehiculos(Connection)}.
+     */
+    public CompletableFuture<List<Vehiculo>> obtenerTodosLosVehiculos() {
+        return ejecutarLectura(VehiculosDAO::obtenerTodosLosVehiculos);
+    }
+
+    /**
+     * Versión asíncrona de {@link VehiculosDAO#obtenerVehiculosPorMarca(Connection, String)}.
+     */
+    public CompletableFuture<List<Vehiculo>> obtenerVehiculosPorMarca(String marca) {
+        return ejecutarLectura(conn -> VehiculosDAO.obtenerVehiculosPorMarca(conn, marca));
+    }
+
+    /**
+     * Versión asíncrona de {@link VehiculosDAO#obtenerPaginaVehiculos(Connection, String, int)}.
+     */
+    public CompletableFuture<Pagina<Vehiculo, String>> obtenerPaginaVehiculos(String ultimaMatricula, int tamano) {
+        return ejecutarLectura(conn -> VehiculosDAO.obtenerPaginaVehiculos(conn, ultimaMatricula, tamano));
+    }
+
+    // ---- PropietariosDAO ----
+
+    /**
+     * Versión asíncrona de {@link PropietariosDAO#insertarPropietario(Connection, String, String)}.
+     */
+    public CompletableFuture<Integer> insertarPropietario(String nombre, String dni) {
+        return ejecutar(conn -> PropietariosDAO.insertarPropietario(conn, nombre, dni));
+    }
+
+    /**
+     * Versión asíncrona de {@link PropietariosDAO#eliminarPropietario(Connection, String)}.
+     */
+    public CompletableFuture<Integer> eliminarPropietario(String dni) {
+        return ejecutar(conn -> PropietariosDAO.eliminarPropietario(conn, dni));
+    }
+
+    /**
+     * Versión asíncrona de {@link PropietariosDAO#obtenerVehiculosDePropietario(Connection, String)}.
+     */
+    public CompletableFuture<List<Vehiculo>> obtenerVehiculosDePropietario(String dni) {
+        return ejecutarLectura(conn -> PropietariosDAO.obtenerVehiculosDePropietario(conn, dni));
+    }
+
+    /**
+     * Versión asíncrona de {@link PropietariosDAO#obtenerVehiculosDePropietarios(Connection, Collection)}.
+     */
+    public CompletableFuture<Map<String, List<Vehiculo>>> obtenerVehiculosDePropietarios(Collection<String> dnis) {
+        return ejecutarLectura(conn -> PropietariosDAO.obtenerVehiculosDePropietarios(conn, dnis));
+    }
+
+    // ---- FuncionalidadesExtrasDAO ----
+
+    /**
+     * Versión asíncrona de {@link FuncionalidadesExtrasDAO#buscarVehiculosPorPrecio(Connection, float, float)}.
+     */
+    public CompletableFuture<List<Vehiculo>> buscarVehiculosPorPrecio(float precioMin, float precioMax) {
+        return ejecutarLectura(conn -> FuncionalidadesExtrasDAO.buscarVehiculosPorPrecio(conn, precioMin,
+                precioMax));
+    }
+
+    /**
+     * Versión asíncrona de {@link FuncionalidadesExtrasDAO#actualizarVehiculo(Connection, String, String, int, float)}.
+     */
+    public CompletableFuture<Integer> actualizarVehiculo(String matricula, String nuevaMarca, int nuevosKms,
+                                                         float nuevoPrecio) {
+        return ejecutar(conn -> FuncionalidadesExtrasDAO.actualizarVehiculo(conn, matricula, nuevaMarca, nuevosKms,
+                nuevoPrecio));
+    }
+
+    /**
+     * Versión asíncrona de {@link FuncionalidadesExtrasDAO#obtenerResumenPorMarca(Connection)}.
+     */
+    public CompletableFuture<List<ResumenMarca>> obtenerResumenPorMarca() {
+        return ejecutarLectura(FuncionalidadesExtrasDAO::obtenerResumenPorMarca);
+    }
+
+    /**
+     * Versión asíncrona de {@link FuncionalidadesExtrasDAO#obtenerInventario(Connection)}.
+     */
+    public CompletableFuture<List<Vehiculo>> obtenerInventario() {
+        return ejecutarLectura(FuncionalidadesExtrasDAO::obtenerInventario);
+    }
+
+    /**
+     * Deja de admitir operaciones y espera a que terminen las pendientes.
+     */
+    @Override
+    public void close() {
+        ejecutor.shutdown();
+        try {
+            if (!ejecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                ejecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ejecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> enviar(Function<Connection, T> operacion, boolean lectura) {
+        if (!admitidas.tryAcquire()) {
+            rechazadas.increment();
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Demasiadas operaciones pendientes en la base de datos"));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return conConexion(operacion, lectura);
+                } finally {
+                    admitidas.release();
+                }
+            }, ejecutor);
+        } catch (RejectedExecutionException e) {
+            // El ejecutor ya está cerrado
+            admitidas.release();
+            rechazadas.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private <T> T conConexion(Function<Connection, T> operacion, boolean lectura) {
+        if (enEjecucion != null) {
+            enEjecucion.acquireUninterruptibly();
+        }
+        try {
+            Connection connection = lectura ? ConnectionDB.openReadConnection() : ConnectionDB.openConnection();
+            if (connection == null) {
+                throw new CompletionException(new SQLException("No se pudo obtener una conexión del pool"));
+            }
+            try {
+                return operacion.apply(connection);
+            } finally {
+                ConnectionDB.closeConnection(connection);
+            }
+        } finally {
+            if (enEjecucion != null) {
+                enEjecucion.release();
+            }
+        }
+    }
+
+    /**
+     * Crea un ejecutor con un hilo virtual por tarea si el entorno lo permite (Java 21 o posterior).
+     * Se obtiene por reflexión para poder compilar y ejecutar también en Java 17.
+     */
+    private static ExecutorService crearEjecutorVirtual() {
+        try {
+            Method fabrica = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) fabrica.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Crea hilos demonio con nombre para el pool fijo.
+     */
+    private static class FabricaHilos implements ThreadFactory {
+        private static final AtomicInteger SECUENCIA = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable tarea) {
+            Thread hilo = new Thread(tarea, "dao-asincrono-" + SECUENCIA.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    }
+}
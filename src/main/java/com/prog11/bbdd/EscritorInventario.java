@@ -0,0 +1,227 @@
+package com.prog11.bbdd;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escribe vehículos en un archivo de exportación con el formato indicado.
+ * Cada fila se escribe en cuanto se recibe a través de un buffer de tamaño fijo,
+ * por lo que la memoria usada no depende del número de filas.
+ */
+class EscritorInventario implements Closeable {
+    // Tamaño del buffer de escritura y del buffer de compresión
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    // Pie del informe en texto
+    static final String PIE_TEXTO = "\nGracias por usar la aplicación de ÁlvaroWau.";
+
+    private final FormatoExportacion formato;
+    private final ContadorBytes contador;
+    private final Writer writer;
+    // Buffer reutilizado para construir cada línea
+    private final StringBuilder linea = new StringBuilder(128);
+    private long filas;
+
+    /**
+     * Cuenta los bytes que llegan al archivo, después de la compresión.
+     */
+    private static class ContadorBytes extends FilterOutputStream {
+        private long bytes;
+
+        ContadorBytes(OutputStream salida) {
+            super(salida);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int desde, int longitud) throws IOException {
+            out.write(b, desde, longitud);
+            bytes += longitud;
+        }
+    }
+
+    private EscritorInventario(OutputStream salida, FormatoExportacion formato, boolean gzip) throws IOException {
+        this.formato = formato;
+        this.contador = new ContadorBytes(salida);
+        OutputStream destino = gzip ? new GZIPOutputStream(contador, TAMANO_BUFFER) : contador;
+        this.writer = new BufferedWriter(new OutputStreamWriter(destino, StandardCharsets.UTF_8), TAMANO_BUFFER);
+    }
+
+    /**
+     * Crea (o sobrescribe) el archivo indicado y prepara la escritura en el formato elegido.
+     *
+     * @param destino La ruta del archivo.
+     * @param formato El formato de exportación.
+     * @param gzip    true para comprimir la salida con gzip.
+     * @return El escritor abierto.
+     * @throws IOException Si no se puede crear el archivo.
+     */
+    static EscritorInventario abrir(Path destino, FormatoExportacion formato, boolean gzip) throws IOException {
+        FileChannel canal = FileChannel.open(destino,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        try {
+            return new EscritorInventario(Channels.newOutputStream(canal), formato, gzip);
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Escribe la cabecera del formato, si la tiene.
+     *
+     * @throws IOException Si falla la escritura.
+     */
+    void escribirCabecera() throws IOException {
+        if (formato == FormatoExportacion.CSV) {
+            writer.write("matricula,marca,kms,precio\n");
+        }
+    }
+
+    /**
+     * Escribe un vehículo.
+     *
+     * @param vehiculo El vehículo a escribir.
+     * @throws IOException Si falla la escritura.
+     */
+    void escribir(Vehiculo vehiculo) throws IOException {
+        escribir(vehiculo.matricula(), vehiculo.marca(), vehiculo.kms(), vehiculo.precio());
+    }
+
+    /**
+     * Escribe un vehículo a partir de sus columnas, sin necesidad de crear un {@link Vehiculo}.
+     *
+     * @param matricula La matrícula del vehículo.
+     * @param marca     La marca del vehículo.
+     * @param kms       El número de kilómetros del vehículo.
+     * @param precio    El precio del vehículo.
+     * @throws IOException Si falla la escritura.
+     */
+    void escribir(String matricula, String marca, int kms, float precio) throws IOException {
+        linea.setLength(0);
+        switch (formato) {
+            case TEXTO:
+                FormateadorVehiculo.formatear(matricula, marca, kms, precio, null, linea);
+                break;
+            case CSV:
+                anadirCsv(matricula, linea).append(',');
+                anadirCsv(marca, linea).append(',').append(kms).append(',');
+                FormateadorVehiculo.anadirPrecio(precio, linea);
+                break;
+            case JSONL:
+                linea.append("{\"matricula\":");
+                anadirJson(matricula, linea).append(",\"marca\":");
+                anadirJson(marca, linea).append(",\"kms\":").append(kms).append(",\"precio\":");
+                FormateadorVehiculo.anadirPrecio(precio, linea).append('}');
+                break;
+        }
+        linea.append('\n');
+        writer.append(linea);
+        filas++;
+    }
+
+    /**
+     * Escribe el pie del formato, si lo tiene.
+     *
+     * @throws IOException Si falla la escritura.
+     */
+    void escribirPie() throws IOException {
+        if (formato == FormatoExportacion.TEXTO) {
+            writer.write(PIE_TEXTO);
+        }
+    }
+
+    /**
+     * @return El número de vehículos escritos.
+     */
+    long filas() {
+        return filas;
+    }
+
+    /**
+     * @return El número de bytes escritos en el archivo. Solo es definitivo tras cerrar el escritor.
+     */
+    long bytes() {
+        return contador.bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private static StringBuilder anadirCsv(String valor, StringBuilder destino) {
+        if (valor == null) {
+            return destino;
+        }
+        boolean comillas = false;
+        for (int i = 0; i < valor.length() && !comillas; i++) {
+            char c = valor.charAt(i);
+            comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!comillas) {
+            return destino.append(valor);
+        }
+        destino.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"') {
+                destino.append('"');
+            }
+            destino.append(c);
+        }
+        return destino.append('"');
+    }
+
+    private static StringBuilder anadirJson(String valor, StringBuilder destino) {
+        if (valor == null) {
+            return destino.append("null");
+        }
+        destino.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"':
+                    destino.append("\\\"");
+                    break;
+                case '\\':
+                    destino.append("\\\\");
+                    break;
+                case '\n':
+                    destino.append("\\n");
+                    break;
+                case '\r':
+                    destino.append("\\r");
+                    break;
+                case '\t':
+                    destino.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        destino.append("\\u00");
+                        destino.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        destino.append(c);
+                    }
+            }
+        }
+        return destino.append('"');
+    }
+}
@@ -0,0 +1,37 @@
+package com.prog11.bbdd;
+
+/**
+ * Instantánea de las estadísticas de una caché (de lecturas o de sentencias preparadas).
+ *
+ * @param aciertos        Consultas resueltas desde la caché.
+ * @param fallos          Consultas que tuvieron que ir a la base de datos.
+ * @param expulsiones     Entradas descartadas por falta de espacio o por caducidad.
+ * @param invalidaciones  Entradas eliminadas por escrituras (0 en la caché de sentencias).
+ * @param entradas        Entradas guardadas en este momento.
+ */
+public record EstadisticasCache(long aciertos,
+                                long fallos,
+                                long expulsiones,
+                                long invalidaciones,
+                                int entradas) {
+
+    /**
+     * Calcula la proporción de aciertos.
+     *
+     * @return La tasa de aciertos entre 0 y 1, o 0 si no hay consultas.
+     */
+    public double tasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    @Override
+    public String toString() {
+        return "Aciertos: " + aciertos
+                + ", Fallos: " + fallos
+                + ", Tasa de aciertos: " + tasaAciertos()
+                + ", Expulsiones: " + expulsiones
+                + ", Invalidaciones: " + invalidaciones
+                + ", Entradas: " + entradas;
+    }
+}
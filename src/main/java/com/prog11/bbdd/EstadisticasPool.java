@@ -0,0 +1,41 @@
+package com.prog11.bbdd;
+
+/**
+ * Instantánea de las estadísticas de uso del pool de conexiones.
+ *
+ * @param activas            Conexiones prestadas en este momento.
+ * @param inactivas          Conexiones abiertas a la espera de ser prestadas.
+ * @param conexionesFisicas  Conexiones físicas abiertas contra la base de datos.
+ * @param prestamos          Número total de préstamos realizados.
+ * @param timeouts           Número de préstamos que superaron el tiempo de espera.
+ * @param esperaTotalNanos   Tiempo total esperado por los préstamos, en nanosegundos.
+ * @param esperaMaximaNanos  Mayor tiempo de espera registrado, en nanosegundos.
+ */
+public record EstadisticasPool(int activas,
+                               int inactivas,
+                               int conexionesFisicas,
+                               long prestamos,
+                               long timeouts,
+                               long esperaTotalNanos,
+                               long esperaMaximaNanos) {
+
+    /**
+     * Calcula el tiempo medio de espera por préstamo.
+     *
+     * @return La espera media en milisegundos, o 0 si aún no hay préstamos.
+     */
+    public double esperaMediaMs() {
+        return prestamos == 0 ? 0 : esperaTotalNanos / 1_000_000.0 / prestamos;
+    }
+
+    @Override
+    public String toString() {
+        return "Activas: " + activas
+                + ", Inactivas: " + inactivas
+                + ", Físicas: " + conexionesFisicas
+                + ", Préstamos: " + prestamos
+                + ", Timeouts: " + timeouts
+                + ", Espera media (ms): " + esperaMediaMs()
+                + ", Espera máxima (ms): " + esperaMaximaNanos / 1_000_000.0;
+    }
+}
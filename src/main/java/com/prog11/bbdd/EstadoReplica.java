@@ -0,0 +1,11 @@
+package com.prog11.bbdd;
+
+/**
+ * Estado de una réplica de lectura.
+ *
+ * @param url          La URL JDBC de la réplica.
+ * @param disponible   true si se le envían lecturas; false si falló la última conexión o comprobación.
+ * @param estadisticas Las estadísticas del pool de conexiones de la réplica.
+ */
+public record EstadoReplica(String url, boolean disponible, EstadisticasPool estadisticas) {
+}
@@ -0,0 +1,291 @@
+package com.prog11.bbdd;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exporta el inventario dividiendo las matrículas en rangos que se leen y se formatean a la vez,
+ * cada uno en su hilo y con su propia conexión de lectura de {@link ConnectionDB}.
+ * <p>
+ * Los rangos se calculan para que tengan aproximadamente el mismo número de vehículos. Cada rango
+ * se lee ordenado por matrícula, de modo que el archivo unido queda ordenado por matrícula. Como
+ * los rangos se leen en transacciones distintas, y con réplicas quizá en réplicas distintas, las
+ * escrituras concurrentes pueden verse en unos rangos y no en otros; si hace falta una imagen
+ * coherente de la tabla debe usarse
+ * {@link FuncionalidadesExtrasDAO#exportarInventario(java.sql.Connection, Path, FormatoExportacion, boolean)}.
+ * <p>
+ * El número de particiones se limita al tamaño máximo del pool de conexiones.
+ */
+public class ExportacionParalela {
+
+    private ExportacionParalela() {
+    }
+
+    /**
+     * Exporta el inventario a un único archivo leyendo las particiones en paralelo. Cada partición se
+     * escribe en un archivo temporal junto al destino y después se copian en orden al destino. Con gzip,
+     * el resultado son varios miembros gzip seguidos, que los descompresores leen como un solo archivo.
+     *
+     * @param destino     La ruta del archivo a generar. Si existe, se sobrescribe.
+     * @param formato     El formato de exportación.
+     * @param gzip        true para comprimir el archivo con gzip.
+     * @param particiones El número de rangos de matrículas a leer a la vez.
+     * @return El resultado con filas, bytes escritos y duración, o null si hay un error.
+     */
+    public static ResultadoExportacion exportarInventarioParalelo(Path destino,
+                                                                  FormatoExportacion formato,
+                                                                  boolean gzip,
+                                                                  int particiones) {
+        long inicio = System.nanoTime();
+        List<Path> partes = new ArrayList<>();
+        try {
+            List<String> limites = calcularLimites(particiones);
+            for (int i = 0; i <= limites.size(); i++) {
+                partes.add(destino.resolveSibling(destino.getFileName() + ".parte" + i));
+            }
+            List<ResultadoExportacion> resultados = exportar(limites, partes, formato, gzip, false,
+                    OperacionDAO.EXPORTAR_INVENTARIO_PARALELO);
+            long filas = 0;
+            try (FileChannel salida = FileChannel.open(destino,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                for (ResultadoExportacion parte : resultados) {
+                    try (FileChannel entrada = FileChannel.open(parte.archivo(), StandardOpenOption.READ)) {
+                        long posicion = 0;
+                        long tamano = entrada.size();
+                        while (posicion < tamano) {
+                            posicion += entrada.transferTo(posicion, tamano - posicion, salida);
+                        }
+                    }
+                    filas += parte.filas();
+                }
+            }
+            MetricasDAO.registrar(OperacionDAO.EXPORTAR_INVENTARIO_PARALELO, inicio, filas);
+            return new ResultadoExportacion(destino, filas, Files.size(destino), System.nanoTime() - inicio);
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.EXPORTAR_INVENTARIO_PARALELO, inicio);
+            System.err.println("Error al leer el inventario para exportarlo: " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            MetricasDAO.registrarError(OperacionDAO.EXPORTAR_INVENTARIO_PARALELO, inicio);
+            System.err.println("Error al escribir el archivo de exportación: " + e.getMessage());
+            return null;
+        } finally {
+            borrar(partes);
+        }
+    }
+
+    /**
+     * Exporta el inventario a un archivo por partición, leyendo las particiones en paralelo. Cada archivo
+     * es una exportación completa de su rango de matrículas, con su cabecera y su pie, y se llama
+     * {@code <prefijo>-<n>.<extensión>} (más {@code .gz} con gzip).
+     *
+     * @param directorio  El directorio donde se crean los archivos.
+     * @param prefijo     El prefijo del nombre de los archivos.
+     * @param formato     El formato de exportación.
+     * @param gzip        true para comprimir los archivos con gzip.
+     * @param particiones El número de rangos de matrículas a leer a la vez.
+     * @return El resultado de cada partición en orden de matrícula, o null si hay un error.
+     */
+    public static List<ResultadoExportacion> exportarInventarioPorParticiones(Path directorio,
+                                                                              String prefijo,
+                                                                              FormatoExportacion formato,
+                                                                              boolean gzip,
+                                                                              int particiones) {
+        long inicio = System.nanoTime();
+        List<Path> archivos = new ArrayList<>();
+        try {
+            List<String> limites = calcularLimites(particiones);
+            for (int i = 0; i <= limites.size(); i++) {
+                archivos.add(directorio.resolve(prefijo + "-" + (i + 1) + "." + formato.extension() + (gzip ? ".gz" : "")));
+            }
+            List<ResultadoExportacion> resultados = exportar(limites, archivos, formato, gzip, true,
+                    OperacionDAO.EXPORTAR_INVENTARIO_POR_PARTICIONES);
+            long filas = 0;
+            for (ResultadoExportacion resultado : resultados) {
+                filas += resultado.filas();
+            }
+            MetricasDAO.registrar(OperacionDAO.EXPORTAR_INVENTARIO_POR_PARTICIONES, inicio, filas);
+            return resultados;
+        } catch (SQLException e) {
+            borrar(archivos);
+            MetricasDAO.registrarError(OperacionDAO.EXPORTAR_INVENTARIO_POR_PARTICIONES, inicio);
+            System.err.println("Error al leer el inventario para exportarlo: " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            borrar(archivos);
+            MetricasDAO.registrarError(OperacionDAO.EXPORTAR_INVENTARIO_POR_PARTICIONES, inicio);
+            System.err.println("Error al escribir el archivo de exportación: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Calcula las matrículas que separan las particiones: la partición i va de {@code limites[i - 1]}
+     * (incluida) a {@code limites[i]} (excluida), sin límite inferior para la primera ni superior para la última.
+     */
+    private static List<String> calcularLimites(int particiones) throws SQLException {
+        if (particiones < 1) {
+            throw new IllegalArgumentException("El número de particiones debe ser positivo: " + particiones);
+        }
+        particiones = Math.min(particiones, ConnectionDB.obtenerConfiguracionPool().tamanoMaximo());
+        List<String> limites = new ArrayList<>(particiones - 1);
+        Connection connection = abrirConexion();
+        try {
+            long total;
+            try (PreparedStatement stmt = connection.prepareStatement("SELECT COUNT(*) FROM vehiculos");
+                 ResultSet rs = stmt.executeQuery()) {
+                total = rs.next() ? rs.getLong(1) : 0;
+            }
+            String sql = "SELECT mat_veh FROM vehiculos ORDER BY mat_veh LIMIT 1 OFFSET ?";
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                for (int i = 1; i < particiones; i++) {
+                    stmt.setLong(1, total * i / particiones);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        // Con pocas filas dos límites pueden coincidir; se omite la partición vacía
+                        if (rs.next() && (limites.isEmpty() || !limites.get(limites.size() - 1).equals(rs.getString(1)))) {
+                            limites.add(rs.getString(1));
+                        }
+                    }
+                }
+            }
+        } finally {
+            ConnectionDB.closeConnection(connection);
+        }
+        return limites;
+    }
+
+    /**
+     * Exporta cada partición a su archivo en un hilo propio y espera a que terminen todas.
+     */
+    private static List<ResultadoExportacion> exportar(List<String> limites,
+                                                       List<Path> archivos,
+                                                       FormatoExportacion formato,
+                                                       boolean gzip,
+                                                       boolean completas,
+                                                       OperacionDAO operacion) throws SQLException, IOException {
+        int particiones = archivos.size();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(particiones, tarea -> {
+            Thread hilo = new Thread(tarea, "exportacion-paralela");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try {
+            List<Future<ResultadoExportacion>> tareas = new ArrayList<>(particiones);
+            for (int i = 0; i < particiones; i++) {
+                String desde = i == 0 ? null : limites.get(i - 1);
+                String hasta = i == particiones - 1 ? null : limites.get(i);
+                boolean cabecera = completas || i == 0;
+                boolean pie = completas || i == particiones - 1;
+                Path archivo = archivos.get(i);
+                Callable<ResultadoExportacion> tarea = () -> exportarParticion(desde, hasta, archivo, formato, gzip,
+                        cabecera, pie, operacion);
+                tareas.add(ejecutor.submit(tarea));
+            }
+            List<ResultadoExportacion> resultados = new ArrayList<>(particiones);
+            for (Future<ResultadoExportacion> tarea : tareas) {
+                resultados.add(esperar(tarea));
+            }
+            return resultados;
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    private static ResultadoExportacion esperar(Future<ResultadoExportacion> tarea) throws SQLException, IOException {
+        try {
+            return tarea.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Exportación interrumpida", e);
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException) {
+                throw (SQLException) causa;
+            }
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            throw new IOException(causa);
+        }
+    }
+
+    /**
+     * Exporta los vehículos con matrícula en [desde, hasta), en orden de matrícula, con una conexión propia.
+     */
+    private static ResultadoExportacion exportarParticion(String desde,
+                                                          String hasta,
+                                                          Path archivo,
+                                                          FormatoExportacion formato,
+                                                          boolean gzip,
+                                                          boolean cabecera,
+                                                          boolean pie,
+                                                          OperacionDAO operacion) throws SQLException, IOException {
+        long inicio = System.nanoTime();
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh FROM vehiculos WHERE mat_veh >= ?" +
+                (hasta == null ? "" : " AND mat_veh < ?") +
+                " ORDER BY mat_veh";
+        Connection connection = abrirConexion();
+        try (PreparedStatement stmt = Consultas.prepararLectura(connection, sql, Consultas.TAMANO_FETCH_POR_DEFECTO,
+                operacion)) {
+            stmt.setString(1, desde == null ? "" : desde);
+            if (hasta != null) {
+                stmt.setString(2, hasta);
+            }
+            EscritorInventario escritor = EscritorInventario.abrir(archivo, formato, gzip);
+            try (escritor) {
+                if (cabecera) {
+                    escritor.escribirCabecera();
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        escritor.escribir(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getFloat(4));
+                    }
+                }
+                if (pie) {
+                    escritor.escribirPie();
+                }
+            }
+            // bytes() solo es definitivo con el escritor cerrado
+            return new ResultadoExportacion(archivo, escritor.filas(), escritor.bytes(), System.nanoTime() - inicio);
+        } finally {
+            ConnectionDB.closeConnection(connection);
+        }
+    }
+
+    private static Connection abrirConexion() throws SQLException {
+        Connection connection = ConnectionDB.openReadConnection();
+        if (connection == null) {
+            throw new SQLException("No se pudo obtener una conexión del pool");
+        }
+        return connection;
+    }
+
+    private static void borrar(List<Path> archivos) {
+        for (Path archivo : archivos) {
+            try {
+                Files.deleteIfExists(archivo);
+            } catch (IOException e) {
+                System.err.println("Error al borrar el archivo " + archivo + ": " + e.getMessage());
+            }
+        }
+    }
+}
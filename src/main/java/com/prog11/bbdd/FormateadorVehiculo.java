@@ -0,0 +1,89 @@
+package com.prog11.bbdd;
+
+/**
+ * Da formato de texto a los vehículos solo cuando se necesita mostrarlos.
+ * Construye el texto directamente sobre un {@link StringBuilder}, sin
+ * {@link String#format} ni expresiones regulares.
+ */
+public class FormateadorVehiculo {
+
+    private FormateadorVehiculo() {
+    }
+
+    /**
+     * Devuelve el texto de un vehículo con el formato
+     * {@code Matrícula: X, Marca: Y, Kilómetros: N, Precio: 0.00[, Propietario: Z]}.
+     *
+     * @param vehiculo El vehículo a formatear.
+     * @return El texto del vehículo.
+     */
+    public static String formatear(Vehiculo vehiculo) {
+        return formatear(vehiculo, new StringBuilder(96)).toString();
+    }
+
+    /**
+     * Añade el texto de un vehículo al final del {@link StringBuilder} indicado.
+     * El propietario solo se incluye si el vehículo tiene nombre de propietario.
+     *
+     * @param vehiculo El vehículo a formatear.
+     * @param destino  El buffer donde se escribe el texto.
+     * @return El mismo buffer recibido.
+     */
+    public static StringBuilder formatear(Vehiculo vehiculo, StringBuilder destino) {
+        return formatear(vehiculo.matricula(),
+                vehiculo.marca(),
+                vehiculo.kms(),
+                vehiculo.precio(),
+                vehiculo.nombrePropietario(),
+                destino);
+    }
+
+    /**
+     * Añade el texto de un vehículo a partir de sus columnas, sin necesidad de crear un {@link Vehiculo}.
+     *
+     * @param matricula         La matrícula del vehículo.
+     * @param marca             La marca del vehículo.
+     * @param kms               El número de kilómetros del vehículo.
+     * @param precio            El precio del vehículo.
+     * @param nombrePropietario El nombre del propietario, o null para omitirlo.
+     * @param destino           El buffer donde se escribe el texto.
+     * @return El mismo buffer recibido.
+     */
+    public static StringBuilder formatear(String matricula,
+                                          String marca,
+                                          int kms,
+                                          float precio,
+                                          String nombrePropietario,
+                                          StringBuilder destino) {
+        destino.append("Matrícula: ").append(matricula)
+                .append(", Marca: ").append(marca)
+                .append(", Kilómetros: ").append(kms)
+                .append(", Precio: ");
+        anadirPrecio(precio, destino);
+        if (nombrePropietario != null) {
+            destino.append(", Propietario: ").append(nombrePropietario);
+        }
+        return destino;
+    }
+
+    /**
+     * Añade un precio con dos decimales y punto decimal, redondeando al céntimo.
+     *
+     * @param precio  El precio a escribir.
+     * @param destino El buffer donde se escribe el precio.
+     * @return El mismo buffer recibido.
+     */
+    public static StringBuilder anadirPrecio(float precio, StringBuilder destino) {
+        long centimos = Math.round(precio * 100.0d);
+        if (centimos < 0) {
+            destino.append('-');
+            centimos = -centimos;
+        }
+        long decimales = centimos % 100;
+        destino.append(centimos / 100).append('.');
+        if (decimales < 10) {
+            destino.append('0');
+        }
+        return destino.append(decimales);
+    }
+}
@@ -0,0 +1,28 @@
+package com.prog11.bbdd;
+
+/**
+ * Formatos disponibles para exportar el inventario de vehículos.
+ */
+public enum FormatoExportacion {
+    // Una línea de texto por vehículo, como el informe en pantalla
+    TEXTO("txt"),
+    // Valores separados por comas con fila de cabecera
+    CSV("csv"),
+    // Un objeto JSON por línea
+    JSONL("jsonl");
+
+    private final String extension;
+
+    FormatoExportacion(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Devuelve la extensión de archivo habitual del formato, sin el punto.
+     *
+     * @return La extensión del formato.
+     */
+    public String extension() {
+        return extension;
+    }
+}
@@ -1,15 +1,22 @@
 package com.prog11.bbdd;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Scanner;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Clase que contiene funciones adicionales para gestionar vehículos en una base de datos.
@@ -18,37 +25,38 @@ import java.util.Scanner;
  */
 public class FuncionalidadesExtrasDAO {
 
+    // Consulta de buscarVehiculosPorPrecio; PlanesConsulta comprueba que usa un índice
+    static final String SQL_VEHICULOS_POR_PRECIO = "SELECT mat_veh, marca_veh, kms_veh, precio_veh " +
+            "FROM vehiculos " +
+            "WHERE precio_veh BETWEEN ? AND ?";
+
     /**
      * Busca vehículos cuyo precio está dentro de un rango específico.
      *
      * @param connection La conexión a la base de datos.
      * @param precioMin  El precio mínimo para la búsqueda.
      * @param precioMax  El precio máximo para la búsqueda.
-     * @return Una lista de cadenas con información sobre los vehículos que cumplen el criterio.
+     * @return Una lista con los vehículos que cumplen el criterio, o null si hay un error.
      */
-    public static List<String> buscarVehiculosPorPrecio(Connection connection, float precioMin, float precioMax) {
-        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh " +
-                "FROM vehiculos " +
-                "WHERE precio_veh BETWEEN ? AND ?";
-        List<String> vehiculos = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+    public static List<Vehiculo> buscarVehiculosPorPrecio(Connection connection, float precioMin, float precioMax) {
+        String sql = SQL_VEHICULOS_POR_PRECIO;
+        List<Vehiculo> vehiculos = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.BUSCAR_VEHICULOS_POR_PRECIO)) {
             stmt.setFloat(1, precioMin);
             stmt.setFloat(2, precioMax);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String vehiculo = String.format("Matrícula: %s, Marca: %s, Kilómetros: %d, Precio: %.2f",
-                            rs.getString("mat_veh"),
-                            rs.getString("marca_veh"),
-                            rs.getInt("kms_veh"),
-                            rs.getFloat("precio_veh")
-                    );
-                    vehiculos.add(vehiculo);
+                    vehiculos.add(Mapeadores.VEHICULO.mapear(rs));
                 }
             }
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.BUSCAR_VEHICULOS_POR_PRECIO, inicio);
             System.err.println("Error al buscar vehículos por precio: " + e.getMessage());
             return null;
         }
+        MetricasDAO.registrar(OperacionDAO.BUSCAR_VEHICULOS_POR_PRECIO, inicio, vehiculos.size());
         return vehiculos;
     }
 
@@ -68,106 +76,482 @@ public class FuncionalidadesExtrasDAO {
                                          int nuevosKms,
                                          float nuevoPrecio) {
         String sql = "UPDATE vehiculos SET marca_veh = ?, kms_veh = ?, precio_veh = ? WHERE mat_veh = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, OperacionDAO.ACTUALIZAR_VEHICULO)) {
             stmt.setString(1, nuevaMarca);
             stmt.setInt(2, nuevosKms);
             stmt.setFloat(3, nuevoPrecio);
             stmt.setString(4, matricula);
             int result = stmt.executeUpdate();
+            CacheVehiculos.invalidarMatricula(matricula);
+            CacheVehiculos.invalidarMarca(nuevaMarca);
+            IndiceAutocompletado.cambiarMarca(matricula, nuevaMarca);
+            MetricasDAO.registrar(OperacionDAO.ACTUALIZAR_VEHICULO, inicio, result);
             return result == 1 ? 0 : -1;
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.ACTUALIZAR_VEHICULO, inicio);
             System.err.println("Error al actualizar vehículo: " + e.getMessage());
             return -1;
         }
     }
 
     /**
-     * Agrupa vehículos por marca.
+     * Cambia en un porcentaje el precio de todos los vehículos de una marca, en tramos del tamaño por defecto.
+     *
+     * @see #actualizarPreciosPorMarca(Connection, String, double, int)
+     */
+    public static int actualizarPreciosPorMarca(Connection connection, String marca, double porcentaje) {
+        return actualizarPreciosPorMarca(connection, marca, porcentaje, LotesJDBC.TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Cambia en un porcentaje el precio de todos los vehículos de una marca, por ejemplo -10 para una
+     * rebaja del 10 %. Los vehículos se actualizan por tramos consecutivos de matrículas con una sentencia
+     * por tramo; en modo autocommit cada tramo se confirma por separado, así que los bloqueos duran lo que
+     * tarda un tramo y no la actualización entera.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param marca       La marca de los vehículos.
+     * @param porcentaje  El porcentaje de cambio del precio (positivo sube, negativo baja), mayor que -100.
+     * @param tamanoTramo El número máximo de vehículos por sentencia.
+     * @return El número de vehículos actualizados, o -1 en caso de error.
+     * @throws IllegalArgumentException Si el porcentaje es -100 o menor; no se actualiza ningún vehículo.
+     */
+    public static int actualizarPreciosPorMarca(Connection connection, String marca, double porcentaje, int tamanoTramo) {
+        // Se valida antes del primer tramo para no dejar la actualización a medias
+        BigDecimal factor = TramosJDBC.factor(porcentaje);
+        long inicio = System.nanoTime();
+        try {
+            int result = TramosJDBC.actualizarPorTramos(connection, "precio_veh = ROUND(precio_veh * ?, 2)", "marca_veh = ?",
+                    tamanoTramo, OperacionDAO.ACTUALIZAR_PRECIOS_POR_MARCA,
+                    new Object[]{factor}, new Object[]{marca});
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrar(OperacionDAO.ACTUALIZAR_PRECIOS_POR_MARCA, inicio, result);
+            return result;
+        } catch (SQLException e) {
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrarError(OperacionDAO.ACTUALIZAR_PRECIOS_POR_MARCA, inicio);
+            System.err.println("Error al actualizar los precios de la marca: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Cambia en un porcentaje el precio de los vehículos de un rango de precio, en tramos del tamaño por defecto.
+     *
+     * @see #actualizarPreciosPorRango(Connection, float, float, double, int)
+     */
+    public static int actualizarPreciosPorRango(Connection connection, float precioMin, float precioMax, double porcentaje) {
+        return actualizarPreciosPorRango(connection, precioMin, precioMax, porcentaje, LotesJDBC.TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Cambia en un porcentaje el precio de los vehículos con precio entre los límites indicados, ambos
+     * incluidos. Se actualiza por tramos de matrículas como en
+     * {@link #actualizarPreciosPorMarca(Connection, String, double, int)}; un vehículo cuyo precio nuevo
+     * sigue dentro del rango no se vuelve a actualizar.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param precioMin   El precio mínimo.
+     * @param precioMax   El precio máximo.
+     * @param porcentaje  El porcentaje de cambio del precio (positivo sube, negativo baja), mayor que -100.
+     * @param tamanoTramo El número máximo de vehículos por sentencia.
+     * @return El número de vehículos actualizados, o -1 en caso de error.
+     * @throws IllegalArgumentException Si el porcentaje es -100 o menor; no se actualiza ningún vehículo.
+     */
+    public static int actualizarPreciosPorRango(Connection connection,
+                                                float precioMin,
+                                                float precioMax,
+                                                double porcentaje,
+                                                int tamanoTramo) {
+        // Se valida antes del primer tramo para no dejar la actualización a medias
+        BigDecimal factor = TramosJDBC.factor(porcentaje);
+        long inicio = System.nanoTime();
+        try {
+            int result = TramosJDBC.actualizarPorTramos(connection, "precio_veh = ROUND(precio_veh * ?, 2)",
+                    "precio_veh BETWEEN ? AND ?", tamanoTramo, OperacionDAO.ACTUALIZAR_PRECIOS_POR_RANGO,
+                    new Object[]{factor}, new Object[]{precioMin, precioMax});
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrar(OperacionDAO.ACTUALIZAR_PRECIOS_POR_RANGO, inicio, result);
+            return result;
+        } catch (SQLException e) {
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrarError(OperacionDAO.ACTUALIZAR_PRECIOS_POR_RANGO, inicio);
+            System.err.println("Error al actualizar los precios del rango: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Asigna un precio nuevo a cada matrícula indicada. Las matrículas se envían en tramos de
+     * {@code tamanoTramo} con una sola sentencia {@code UPDATE ... CASE} por tramo, en lugar de
+     * una sentencia por vehículo.
+     *
+     * @param connection    La conexión a la base de datos.
+     * @param nuevosPrecios El precio nuevo de cada matrícula.
+     * @param tamanoTramo   El número máximo de matrículas por sentencia.
+     * @return El número de vehículos actualizados (las matrículas inexistentes no cuentan), o -1 en caso de error.
+     */
+    public static int actualizarPrecios(Connection connection, Map<String, Float> nuevosPrecios, int tamanoTramo) {
+        long inicio = System.nanoTime();
+        try {
+            int result = TramosJDBC.actualizarPorMatricula(connection, "precio_veh", nuevosPrecios, tamanoTramo,
+                    OperacionDAO.ACTUALIZAR_PRECIOS,
+                    (stmt, indice, precio) -> stmt.setFloat(indice, precio));
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrar(OperacionDAO.ACTUALIZAR_PRECIOS, inicio, result);
+            return result;
+        } catch (SQLException e) {
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrarError(OperacionDAO.ACTUALIZAR_PRECIOS, inicio);
+            System.err.println("Error al actualizar los precios: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Asigna un kilometraje nuevo a cada matrícula indicada, en tramos como
+     * {@link #actualizarPrecios(Connection, Map, int)}.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param nuevosKms   El kilometraje nuevo de cada matrícula.
+     * @param tamanoTramo El número máximo de matrículas por sentencia.
+     * @return El número de vehículos actualizados (las matrículas inexistentes no cuentan), o -1 en caso de error.
+     */
+    public static int actualizarKilometros(Connection connection, Map<String, Integer> nuevosKms, int tamanoTramo) {
+        long inicio = System.nanoTime();
+        try {
+            int result = TramosJDBC.actualizarPorMatricula(connection, "kms_veh", nuevosKms, tamanoTramo,
+                    OperacionDAO.ACTUALIZAR_KILOMETROS,
+                    (stmt, indice, kms) -> stmt.setInt(indice, kms));
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrar(OperacionDAO.ACTUALIZAR_KILOMETROS, inicio, result);
+            return result;
+        } catch (SQLException e) {
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrarError(OperacionDAO.ACTUALIZAR_KILOMETROS, inicio);
+            System.err.println("Error al actualizar los kilómetros: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Agrupa vehículos por marca. Las marcas se comparan como en
+     * {@link #recorrerGruposPorMarca(Connection, BiConsumer)}, así que las que solo difieren en mayúsculas,
+     * acentos o espacios finales quedan en el mismo grupo, y los vehículos sin marca forman su propio grupo.
      *
      * @param connection La conexión a la base de datos.
-     * @return Una lista de listas de cadenas, donde cada lista interna representa un grupo de vehículos por marca.
+     * @return Una lista de listas, donde cada lista interna representa un grupo de vehículos por marca.
      */
-    public static List<List<String>> agruparVehiculosPorMarca(Connection connection) {
-        String sql = "SELECT marca_veh, mat_veh, kms_veh, precio_veh FROM vehiculos ORDER BY marca_veh";
-        List<List<String>> agrupadosPorMarca = new ArrayList<>();
-        List<String> grupoActual = null;
-        String marcaActual = null;
+    public static List<List<Vehiculo>> agruparVehiculosPorMarca(Connection connection) {
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh FROM vehiculos ORDER BY marca_veh, mat_veh";
+        List<List<Vehiculo>> agrupadosPorMarca = new ArrayList<>();
+        List<Vehiculo> grupoActual = null;
+        String claveActual = null;
+        int filas = 0;
+        long inicio = System.nanoTime();
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.AGRUPAR_VEHICULOS_POR_MARCA);
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
-                String marca = rs.getString("marca_veh");
-                String vehiculo = String.format("Matrícula: %s, Marca: %s, Kilómetros: %d, Precio: %.2f",
-                        rs.getString("mat_veh"),
-                        marca,
-                        rs.getInt("kms_veh"),
-                        rs.getFloat("precio_veh")
-                );
-
-                if (!marca.equals(marcaActual)) {
+                Vehiculo vehiculo = Mapeadores.VEHICULO.mapear(rs);
+                String marca = vehiculo.marca();
+                String clave = marca == null ? null : CacheVehiculos.normalizarMarca(marca);
+
+                if (grupoActual == null || !Objects.equals(clave, claveActual)) {
                     grupoActual = new ArrayList<>();
                     agrupadosPorMarca.add(grupoActual);
-                    marcaActual = marca;
+                    claveActual = clave;
                 }
 
                 grupoActual.add(vehiculo);
+                filas++;
             }
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.AGRUPAR_VEHICULOS_POR_MARCA, inicio);
             System.err.println("Error al agrupar vehículos por marca: " + e.getMessage());
             return null;
         }
+        MetricasDAO.registrar(OperacionDAO.AGRUPAR_VEHICULOS_POR_MARCA, inicio, filas);
         return agrupadosPorMarca;
     }
 
+    /**
+     * Obtiene un resumen por marca calculado en la base de datos con {@code GROUP BY}:
+     * número de vehículos, precio mínimo, medio y máximo, y kilometraje medio.
+     * Solo viaja una fila por marca, por lo que es lo indicado para cuadros de mando.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return Una lista con el resumen de cada marca ordenada por marca, o null si hay un error.
+     */
+    public static List<ResumenMarca> obtenerResumenPorMarca(Connection connection) {
+        String sql = "SELECT marca_veh, COUNT(*), MIN(precio_veh), AVG(precio_veh), MAX(precio_veh), AVG(kms_veh) " +
+                "FROM vehiculos " +
+                "GROUP BY marca_veh " +
+                "ORDER BY marca_veh";
+        List<ResumenMarca> resumenes = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_RESUMEN_POR_MARCA);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                resumenes.add(new ResumenMarca(
+                        rs.getString(1),
+                        rs.getInt(2),
+                        rs.getFloat(3),
+                        rs.getDouble(4),
+                        rs.getFloat(5),
+                        rs.getDouble(6)));
+            }
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_RESUMEN_POR_MARCA, inicio);
+            System.err.println("Error al obtener el resumen por marca: " + e.getMessage());
+            return null;
+        }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_RESUMEN_POR_MARCA, inicio, resumenes.size());
+        return resumenes;
+    }
+
+    /**
+     * Recorre los vehículos agrupados por marca y entrega cada grupo a la acción indicada en
+     * cuanto se completa. Las filas se leen en streaming, así que en memoria solo está el grupo actual.
+     * Las marcas se comparan como la columna marca_veh (sin distinguir mayúsculas, acentos ni espacios
+     * finales), igual que en {@link #obtenerResumenPorMarca(Connection)}; cada grupo lleva el nombre de
+     * su primera fila.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param accion     La acción que recibe la marca y los vehículos de cada grupo.
+     * @return El número de grupos recorridos, o -1 si hay un error.
+     */
+    public static int recorrerGruposPorMarca(Connection connection, BiConsumer<String, List<Vehiculo>> accion) {
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh FROM vehiculos ORDER BY marca_veh, mat_veh";
+        int grupos = 0;
+        List<Vehiculo> grupoActual = new ArrayList<>();
+        String marcaActual = null;
+        String claveActual = null;
+        long inicio = System.nanoTime();
+
+        try (PreparedStatement stmt = Consultas.prepararLectura(connection, sql, Consultas.TAMANO_FETCH_POR_DEFECTO,
+                OperacionDAO.RECORRER_GRUPOS_POR_MARCA);
+             ResultSet rs = stmt.executeQuery()) {
+
+            while (rs.next()) {
+                Vehiculo vehiculo = Mapeadores.VEHICULO.mapear(rs);
+                String marca = vehiculo.marca();
+                // ORDER BY usa la collation de la columna, así que "Honda" y "HONDA" llegan mezcladas
+                String clave = marca == null ? null : CacheVehiculos.normalizarMarca(marca);
+
+                if (!grupoActual.isEmpty() && !Objects.equals(clave, claveActual)) {
+                    accion.accept(marcaActual, grupoActual);
+                    grupos++;
+                    grupoActual = new ArrayList<>();
+                }
+                if (grupoActual.isEmpty()) {
+                    marcaActual = marca;
+                    claveActual = clave;
+                }
+                grupoActual.add(vehiculo);
+            }
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.RECORRER_GRUPOS_POR_MARCA, inicio);
+            System.err.println("Error al recorrer los grupos por marca: " + e.getMessage());
+            return -1;
+        }
+        if (!grupoActual.isEmpty()) {
+            accion.accept(marcaActual, grupoActual);
+            grupos++;
+        }
+        MetricasDAO.registrar(OperacionDAO.RECORRER_GRUPOS_POR_MARCA, inicio, grupos);
+        return grupos;
+    }
+
+    /**
+     * Agrupa los vehículos por marca en un mapa ordenado por marca.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return Un mapa de cada marca a sus vehículos, o null si hay un error.
+     * @see #recorrerGruposPorMarca(Connection, BiConsumer)
+     */
+    public static Map<String, List<Vehiculo>> agruparVehiculosPorMarcaEnMapa(Connection connection) {
+        Map<String, List<Vehiculo>> agrupados = new LinkedHashMap<>();
+        if (recorrerGruposPorMarca(connection,
+                (marca, vehiculos) -> agrupados.computeIfAbsent(marca, m -> new ArrayList<>()).addAll(vehiculos)) < 0) {
+            return null;
+        }
+        return agrupados;
+    }
+
     /**
      * Obtiene el inventario de vehículos en la base de datos.
      *
      * @param connection La conexión a la base de datos.
-     * @return Una lista de cadenas que representan cada vehículo en el inventario.
+     * @return Una lista con cada vehículo del inventario, o null si hay un error.
      */
-    public static List<String> obtenerInventario(Connection connection) {
+    public static List<Vehiculo> obtenerInventario(Connection connection) {
         String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh FROM vehiculos";
-        List<String> inventario = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement(sql);
+        List<Vehiculo> inventario = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, OperacionDAO.OBTENER_INVENTARIO);
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
-                String vehiculo = String.format(
-                        "Matrícula: %s, Marca: %s, Kilómetros: %d, Precio: %.2f",
-                        rs.getString("mat_veh"),
-                        rs.getString("marca_veh"),
-                        rs.getInt("kms_veh"),
-                        rs.getFloat("precio_veh")
-                );
-                inventario.add(vehiculo);
+                inventario.add(Mapeadores.VEHICULO.mapear(rs));
             }
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_INVENTARIO, inicio);
             System.err.println("Error al obtener inventario de vehículos: " + e.getMessage());
             return null;
         }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_INVENTARIO, inicio, inventario.size());
         return inventario;
     }
 
     /**
-     * Genera un informe del inventario de vehículos y permite mostrarlo en pantalla o guardarlo en un archivo de texto.
+     * Obtiene una página del inventario ordenada por matrícula, empezando justo después de
+     * la última matrícula recibida.
+     *
+     * @param connection      La conexión a la base de datos.
+     * @param ultimaMatricula La matrícula devuelta como cursor por la página anterior, o null para la primera.
+     * @param tamano          El número máximo de vehículos de la página.
+     * @return La página de vehículos con el cursor de la siguiente, o null si hay un error.
+     */
+    public static Pagina<Vehiculo, String> obtenerPaginaInventario(Connection connection,
+                                                                   String ultimaMatricula,
+                                                                   int tamano) {
+        if (tamano < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo: " + tamano);
+        }
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh FROM vehiculos " +
+                "WHERE mat_veh > ? ORDER BY mat_veh LIMIT ?";
+        List<Vehiculo> inventario = new ArrayList<>(tamano + 1);
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_PAGINA_INVENTARIO)) {
+            stmt.setString(1, ultimaMatricula == null ? "" : ultimaMatricula);
+            // Se pide un vehículo más para saber si existe una página siguiente
+            stmt.setInt(2, tamano + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    inventario.add(Mapeadores.VEHICULO.mapear(rs));
+                }
+            }
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_PAGINA_INVENTARIO, inicio);
+            System.err.println("Error al obtener la página del inventario: " + e.getMessage());
+            return null;
+        }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_PAGINA_INVENTARIO, inicio, inventario.size());
+        if (inventario.size() <= tamano) {
+            return new Pagina<>(inventario, null);
+        }
+        inventario.remove(tamano);
+        return new Pagina<>(inventario, inventario.get(tamano - 1).matricula());
+    }
+
+    /**
+     * Recorre el inventario de vehículos entregando cada vehículo a la acción indicada
+     * a medida que se lee, sin cargar la tabla entera en memoria.
      *
      * @param connection La conexión a la base de datos.
-     * @param opcion     1 para mostrar el informe en pantalla, 2 para guardarlo en un archivo.
+     * @param accion     La acción que recibe cada vehículo.
+     * @return El número de vehículos recorridos, o -1 si hay un error.
      */
-    public static void generarInformeInventario(Connection connection, int opcion) {
-        List<String> inventario = obtenerInventario(connection);
+    public static long recorrerInventario(Connection connection, Consumer<Vehiculo> accion) {
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh FROM vehiculos";
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = Consultas.prepararLectura(connection, sql, Consultas.TAMANO_FETCH_POR_DEFECTO,
+                OperacionDAO.RECORRER_INVENTARIO)) {
+            long filas = Consultas.recorrer(stmt, Mapeadores.VEHICULO, accion);
+            MetricasDAO.registrar(OperacionDAO.RECORRER_INVENTARIO, inicio, filas);
+            return filas;
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.RECORRER_INVENTARIO, inicio);
+            System.err.println("Error al recorrer el inventario de vehículos: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Obtiene el inventario de vehículos como un stream que lee las filas bajo demanda.
+     * El stream debe cerrarse tras usarlo; mientras esté abierto la conexión no debe usarse
+     * para otras consultas.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param tamanoFetch El número de filas que el driver lee en cada bloque.
+     * @return Un stream de vehículos, o null si hay un error.
+     */
+    public static Stream<Vehiculo> streamInventario(Connection connection, int tamanoFetch) {
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh FROM vehiculos";
+        long inicio = System.nanoTime();
+        try {
+            PreparedStatement stmt = Consultas.prepararLectura(connection, sql, tamanoFetch,
+                    OperacionDAO.STREAM_INVENTARIO);
+            return Consultas.stream(stmt, Mapeadores.VEHICULO, OperacionDAO.STREAM_INVENTARIO, inicio);
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.STREAM_INVENTARIO, inicio);
+            System.err.println("Error al obtener el stream del inventario: " + e.getMessage());
+            return null;
+        }
+    }
 
-        if (inventario == null) {
-            System.out.println("No se pudo obtener el inventario.");
-            return;
+    /**
+     * Exporta el inventario de vehículos a un archivo sin pedir datos al usuario, por lo que
+     * puede ejecutarse desde tareas programadas. Las filas se escriben directamente desde el
+     * resultado de la consulta a un canal con buffer, de modo que la memoria usada es constante.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param destino    La ruta del archivo a generar. Si existe, se sobrescribe.
+     * @param formato    El formato de exportación.
+     * @param gzip       true para comprimir el archivo con gzip.
+     * @return El resultado con filas, bytes escritos y duración, o null si hay un error.
+     */
+    public static ResultadoExportacion exportarInventario(Connection connection,
+                                                          Path destino,
+                                                          FormatoExportacion formato,
+                                                          boolean gzip) {
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh FROM vehiculos";
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = Consultas.prepararLectura(connection, sql, Consultas.TAMANO_FETCH_POR_DEFECTO,
+                OperacionDAO.EXPORTAR_INVENTARIO)) {
+            EscritorInventario escritor = EscritorInventario.abrir(destino, formato, gzip);
+            try (escritor) {
+                escritor.escribirCabecera();
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        escritor.escribir(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getFloat(4));
+                    }
+                }
+                escritor.escribirPie();
+            }
+            // Se mide ya cerrado para contar también los bytes que quedaban en el buffer
+            MetricasDAO.registrar(OperacionDAO.EXPORTAR_INVENTARIO, inicio, escritor.filas());
+            return new ResultadoExportacion(destino, escritor.filas(), escritor.bytes(), System.nanoTime() - inicio);
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.EXPORTAR_INVENTARIO, inicio);
+            System.err.println("Error al leer el inventario para exportarlo: " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            MetricasDAO.registrarError(OperacionDAO.EXPORTAR_INVENTARIO, inicio);
+            System.err.println("Error al escribir el archivo de exportación: " + e.getMessage());
+            return null;
         }
+    }
 
+    /**
+     * Genera un informe del inventario de vehículos y permite mostrarlo en pantalla o guardarlo en un archivo de texto.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param opcion     1 para mostrar el informe en pantalla, 2 para guardarlo en un archivo.
+     */
+    public static void generarInformeInventario(Connection connection, int opcion) {
         if (opcion == 1) {
-            // Mostrar el informe en pantalla
+            // Mostrar el informe en pantalla según se leen las filas
             System.out.println("Informe de inventario de vehículos:");
-            for (String vehiculo : inventario) {
-                System.out.println(vehiculo);
+            if (recorrerInventario(connection, System.out::println) < 0) {
+                System.out.println("No se pudo obtener el inventario.");
             }
         } else if (opcion == 2) {
             // Guardar el informe en un archivo en el escritorio
@@ -193,15 +577,12 @@ public class FuncionalidadesExtrasDAO {
             }
 
             // Guardar el informe en el archivo
-            try (FileWriter writer = new FileWriter(archivo)) {
-                for (String vehiculo : inventario) {
-                    writer.write(vehiculo + "\n");
-                }
-
-                writer.write("\nGracias por usar la aplicación de ÁlvaroWau.");
+            ResultadoExportacion resultado = exportarInventario(connection, archivo.toPath(),
+                    FormatoExportacion.TEXTO, false);
+            if (resultado != null) {
                 System.out.println("Informe guardado en: " + archivo.getAbsolutePath());
-            } catch (IOException e) {
-                System.out.println("Error al escribir el archivo: " + e.getMessage());
+            } else {
+                System.out.println("No se pudo guardar el informe.");
             }
         } else {
             System.out.println("Opción no válida.");
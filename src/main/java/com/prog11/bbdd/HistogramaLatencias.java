@@ -0,0 +1,119 @@
+package com.prog11.bbdd;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias en nanosegundos con cubetas logarítmicas.
+ * <p>
+ * Cada potencia de dos se divide en 8 cubetas, así que un percentil se obtiene con un error
+ * relativo menor del 12,5 %. Registrar un valor solo incrementa contadores atómicos:
+ * no bloquea ni reserva memoria.
+ */
+class HistogramaLatencias {
+    private static final int BITS_SUBCUBETA = 3;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int CUBETAS = (64 - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+
+    private final AtomicLongArray cubetas = new AtomicLongArray(CUBETAS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra una latencia.
+     *
+     * @param nanos La latencia en nanosegundos.
+     */
+    void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        cubetas.incrementAndGet(indice(valor));
+        total.increment();
+        suma.add(valor);
+        long actual = maximo.get();
+        while (valor > actual && !maximo.compareAndSet(actual, valor)) {
+            actual = maximo.get();
+        }
+    }
+
+    /**
+     * @return El número de valores registrados.
+     */
+    long total() {
+        return total.sum();
+    }
+
+    /**
+     * @return La media de los valores registrados en nanosegundos, o 0 si no hay ninguno.
+     */
+    double media() {
+        long n = total.sum();
+        return n == 0 ? 0 : (double) suma.sum() / n;
+    }
+
+    /**
+     * @return El mayor valor registrado en nanosegundos.
+     */
+    long maximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Calcula un percentil a partir de las cubetas.
+     *
+     * @param percentil El percentil entre 0 y 100.
+     * @return El límite superior de la cubeta que contiene el percentil, en nanosegundos, o 0 si no hay valores.
+     */
+    long percentil(double percentil) {
+        long[] copia = new long[CUBETAS];
+        long n = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cubetas.get(i);
+            n += copia[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long posicion = Math.max(1, (long) Math.ceil(percentil / 100 * n));
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += copia[i];
+            if (acumulado >= posicion) {
+                return Math.min(limiteSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Pone a cero el histograma. Los valores registrados mientras se reinicia pueden perderse.
+     */
+    void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        total.reset();
+        suma.reset();
+        maximo.set(0);
+    }
+
+    private static int indice(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int mantisa = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return ((exponente - BITS_SUBCUBETA + 1) << BITS_SUBCUBETA) | mantisa;
+    }
+
+    private static long limiteSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int exponente = (indice >>> BITS_SUBCUBETA) + BITS_SUBCUBETA - 1;
+        long mantisa = SUBCUBETAS | (indice & (SUBCUBETAS - 1));
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        return (mantisa << desplazamiento) + (1L << desplazamiento) - 1;
+    }
+}
@@ -0,0 +1,335 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Índice en memoria de matrículas y marcas para autocompletar sin consultar la base de datos.
+ * Está vacío por defecto; se llena con {@link #cargar(Connection)}.
+ * <p>
+ * Las claves se guardan normalizadas en mapas ordenados, así que una búsqueda por prefijo es
+ * un recorrido del subrango que empieza por él y solo lee tantas entradas como resultados se
+ * piden. Las matrículas se comparan sin distinguir mayúsculas, espacios ni guiones, y las
+ * marcas igual que en {@link CacheVehiculos}.
+ * <p>
+ * Una vez cargado, los métodos de escritura de los DAO lo mantienen al día, incluido el borrado
+ * en cascada de los vehículos de un propietario. Las escrituras que se hacen mientras se carga
+ * se vuelven a aplicar sobre el índice nuevo. Las actualizaciones masivas de precio y kilometraje
+ * no le afectan. Si una {@link UnidadDeTrabajo} se deshace, el índice puede conservar
+ * matrículas que no llegaron a confirmarse y queda marcado como desactualizado hasta la
+ * siguiente carga; lo mismo ocurre con las escrituras hechas por otros procesos, que no se ven.
+ */
+public class IndiceAutocompletado {
+
+    /**
+     * Datos del índice para una matrícula, con la matrícula tal y como se guardó.
+     */
+    private record Entrada(String matricula, String marca, int idProp) {
+    }
+
+    /**
+     * Marca tal y como se leyó por primera vez y su número de vehículos.
+     */
+    private record Marca(String nombre, int vehiculos) {
+    }
+
+    /**
+     * Contenido del índice. Se modifica solo con el bloqueo de la clase; las búsquedas no se bloquean.
+     */
+    private static final class Indice {
+        // Clave de la matrícula, comparada como la columna mat_veh -> datos
+        private final Map<String, Entrada> porMatricula = new ConcurrentHashMap<>();
+        // Matrícula normalizada + '\0' + matrícula -> matrícula, en orden
+        private final ConcurrentSkipListMap<String, String> matriculas = new ConcurrentSkipListMap<>();
+        // Marca normalizada -> marca, en orden
+        private final ConcurrentSkipListMap<String, Marca> marcas = new ConcurrentSkipListMap<>();
+
+        void anadir(String matricula, String marca, int idProp) {
+            String clave = CacheVehiculos.claveMatricula(matricula);
+            Entrada anterior = porMatricula.get(clave);
+            if (anterior == null) {
+                porMatricula.put(clave, new Entrada(matricula, marca, idProp));
+                matriculas.put(clave(matricula), matricula);
+                sumarMarca(marca, 1);
+            } else {
+                // La fila conserva la matrícula con la que se insertó
+                porMatricula.put(clave, new Entrada(anterior.matricula(), marca, idProp));
+                if (!mismaMarca(anterior.marca(), marca)) {
+                    sumarMarca(anterior.marca(), -1);
+                    sumarMarca(marca, 1);
+                }
+            }
+        }
+
+        void eliminar(String matricula) {
+            Entrada anterior = porMatricula.remove(CacheVehiculos.claveMatricula(matricula));
+            if (anterior != null) {
+                matriculas.remove(clave(anterior.matricula()));
+                sumarMarca(anterior.marca(), -1);
+            }
+        }
+
+        void cambiarMarca(String matricula, String marca) {
+            Entrada anterior = porMatricula.get(CacheVehiculos.claveMatricula(matricula));
+            if (anterior != null) {
+                anadir(anterior.matricula(), marca, anterior.idProp());
+            }
+        }
+
+        void cambiarPropietario(String matricula, int idProp) {
+            String clave = CacheVehiculos.claveMatricula(matricula);
+            Entrada anterior = porMatricula.get(clave);
+            if (anterior != null) {
+                porMatricula.put(clave, new Entrada(anterior.matricula(), anterior.marca(), idProp));
+            }
+        }
+
+        void eliminarDePropietarios(Set<Integer> idsProp) {
+            List<String> borradas = new ArrayList<>();
+            for (Entrada entrada : porMatricula.values()) {
+                if (idsProp.contains(entrada.idProp())) {
+                    borradas.add(entrada.matricula());
+                }
+            }
+            for (String matricula : borradas) {
+                eliminar(matricula);
+            }
+        }
+
+        private void sumarMarca(String marca, int cambio) {
+            if (marca == null) {
+                return;
+            }
+            marcas.compute(CacheVehiculos.normalizarMarca(marca), (clave, actual) -> {
+                int vehiculos = (actual == null ? 0 : actual.vehiculos()) + cambio;
+                if (vehiculos <= 0) {
+                    return null;
+                }
+                return new Marca(actual == null ? marca : actual.nombre(), vehiculos);
+            });
+        }
+
+        private static boolean mismaMarca(String a, String b) {
+            if (a == null || b == null) {
+                return a == b;
+            }
+            return a.equals(b) || CacheVehiculos.normalizarMarca(a).equals(CacheVehiculos.normalizarMarca(b));
+        }
+
+        private static String clave(String matricula) {
+            return normalizarMatricula(matricula) + '\0' + matricula;
+        }
+    }
+
+    // Orden de las marcas sugeridas: primero las que tienen más vehículos
+    private static final Comparator<Marca> POR_VEHICULOS =
+            Comparator.comparingInt(Marca::vehiculos).reversed().thenComparing(Marca::nombre);
+
+    private static final Object CARGA = new Object();
+
+    private static volatile Indice actual;
+    // Escrituras hechas durante una carga, para aplicarlas también al índice nuevo; null si no hay carga
+    private static List<Consumer<Indice>> diario;
+    private static volatile boolean desactualizado;
+
+    private IndiceAutocompletado() {
+    }
+
+    /**
+     * Lee las matrículas y marcas de la tabla vehiculos y publica un índice nuevo en lugar del actual.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return El número de matrículas cargadas, o -1 en caso de error (se mantiene el índice anterior).
+     */
+    public static int cargar(Connection connection) {
+        String sql = "SELECT mat_veh, marca_veh, id_prop FROM vehiculos";
+        synchronized (CARGA) {
+            boolean desactualizadoAntes;
+            synchronized (IndiceAutocompletado.class) {
+                diario = new ArrayList<>();
+                desactualizadoAntes = desactualizado;
+                desactualizado = false;
+            }
+            Indice nuevo = new Indice();
+            try (PreparedStatement stmt = Consultas.prepararLectura(connection, sql,
+                    Consultas.TAMANO_FETCH_POR_DEFECTO);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    nuevo.anadir(rs.getString(1), rs.getString(2), rs.getInt(3));
+                }
+            } catch (SQLException e) {
+                synchronized (IndiceAutocompletado.class) {
+                    diario = null;
+                    desactualizado |= desactualizadoAntes;
+                }
+                System.err.println("Error al cargar el índice de autocompletado: " + e.getMessage());
+                return -1;
+            }
+            synchronized (IndiceAutocompletado.class) {
+                for (Consumer<Indice> cambio : diario) {
+                    cambio.accept(nuevo);
+                }
+                diario = null;
+                actual = nuevo;
+            }
+            return nuevo.porMatricula.size();
+        }
+    }
+
+    /**
+     * Descarta el índice. Las búsquedas devuelven null hasta la siguiente carga.
+     */
+    public static synchronized void vaciar() {
+        actual = null;
+        desactualizado = false;
+    }
+
+    /**
+     * @return true si hay un índice cargado.
+     */
+    public static boolean estaCargado() {
+        return actual != null;
+    }
+
+    /**
+     * @return true si, desde la última carga, se ha deshecho alguna transacción que pudo escribir en él.
+     */
+    public static boolean estaDesactualizado() {
+        return desactualizado;
+    }
+
+    /**
+     * @return El número de matrículas del índice, o -1 si no está cargado.
+     */
+    public static int tamano() {
+        Indice indice = actual;
+        return indice == null ? -1 : indice.porMatricula.size();
+    }
+
+    /**
+     * Busca las matrículas que empiezan por un prefijo, sin distinguir mayúsculas, espacios ni guiones.
+     *
+     * @param prefijo El prefijo escrito por el usuario.
+     * @param limite  El número máximo de resultados.
+     * @return Las matrículas en orden alfabético, o null si el índice no está cargado.
+     */
+    public static List<String> buscarMatriculas(String prefijo, int limite) {
+        comprobarLimite(limite);
+        Indice indice = actual;
+        if (indice == null) {
+            return null;
+        }
+        List<String> resultado = new ArrayList<>(Math.min(limite, 16));
+        for (String matricula : rango(indice.matriculas, normalizarMatricula(prefijo)).values()) {
+            resultado.add(matricula);
+            if (resultado.size() == limite) {
+                break;
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca las marcas que empiezan por un prefijo, sin distinguir mayúsculas, acentos ni espacios finales.
+     *
+     * @param prefijo El prefijo escrito por el usuario.
+     * @param limite  El número máximo de resultados.
+     * @return Las marcas, de la que tiene más vehículos a la que menos, o null si el índice no está cargado.
+     */
+    public static List<String> buscarMarcas(String prefijo, int limite) {
+        comprobarLimite(limite);
+        Indice indice = actual;
+        if (indice == null) {
+            return null;
+        }
+        // Hay pocas marcas, así que se ordenan todas las que coinciden
+        List<Marca> coincidentes = new ArrayList<>(
+                rango(indice.marcas, CacheVehiculos.normalizarMarca(prefijo)).values());
+        coincidentes.sort(POR_VEHICULOS);
+        List<String> resultado = new ArrayList<>(Math.min(limite, coincidentes.size()));
+        for (int i = 0; i < coincidentes.size() && i < limite; i++) {
+            resultado.add(coincidentes.get(i).nombre());
+        }
+        return resultado;
+    }
+
+    // ---- Sincronización con las escrituras de los DAO ----
+
+    static void anadir(String matricula, String marca, int idProp) {
+        aplicar(indice -> indice.anadir(matricula, marca, idProp));
+    }
+
+    static void eliminar(String matricula) {
+        aplicar(indice -> indice.eliminar(matricula));
+    }
+
+    static void cambiarMarca(String matricula, String marca) {
+        aplicar(indice -> indice.cambiarMarca(matricula, marca));
+    }
+
+    static void cambiarPropietario(String matricula, int idProp) {
+        aplicar(indice -> indice.cambiarPropietario(matricula, idProp));
+    }
+
+    static void eliminarDePropietario(int idProp) {
+        eliminarDePropietarios(Set.of(idProp));
+    }
+
+    static void eliminarDePropietarios(Set<Integer> idsProp) {
+        aplicar(indice -> indice.eliminarDePropietarios(idsProp));
+    }
+
+    /**
+     * Marca el índice como desactualizado porque se ha deshecho una transacción.
+     */
+    static synchronized void marcarDesactualizado() {
+        if (actual != null || diario != null) {
+            desactualizado = true;
+        }
+    }
+
+    private static synchronized void aplicar(Consumer<Indice> cambio) {
+        if (actual != null) {
+            cambio.accept(actual);
+        }
+        if (diario != null) {
+            diario.add(cambio);
+        }
+    }
+
+    private static <V> ConcurrentNavigableMap<String, V> rango(ConcurrentSkipListMap<String, V> mapa, String prefijo) {
+        return prefijo.isEmpty() ? mapa : mapa.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false);
+    }
+
+    private static void comprobarLimite(int limite) {
+        if (limite < 1) {
+            throw new IllegalArgumentException("El número de resultados debe ser positivo: " + limite);
+        }
+    }
+
+    /**
+     * Normaliza una matrícula para compararla: mayúsculas y sin espacios ni guiones.
+     */
+    static String normalizarMatricula(String matricula) {
+        StringBuilder clave = new StringBuilder(matricula.length());
+        for (int i = 0; i < matricula.length(); i++) {
+            char c = matricula.charAt(i);
+            if (c != ' ' && c != '-') {
+                clave.append(c);
+            }
+        }
+        return clave.toString().toUpperCase(Locale.ROOT);
+    }
+}
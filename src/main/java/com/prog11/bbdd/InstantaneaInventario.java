@@ -0,0 +1,541 @@
+package com.prog11.bbdd;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Copia inmutable en memoria de la tabla vehiculos, guardada por columnas de tipos primitivos.
+ * <p>
+ * Las filas están ordenadas por precio, así que un filtro por rango de precio es una búsqueda
+ * binaria. Las marcas se codifican con un diccionario y, para cada marca, se guardan las
+ * posiciones de sus vehículos, también ordenadas por precio. Los filtros recorren solo arrays
+ * primitivos y únicamente crean un {@link Vehiculo} por cada fila del resultado.
+ * <p>
+ * Las marcas se comparan igual que en la base de datos, sin distinguir mayúsculas, acentos
+ * ni espacios finales. Una instantánea no cambia; para ver escrituras posteriores hay que
+ * cargar otra (véase {@link InventarioEnMemoria}).
+ * <p>
+ * Una instantánea puede guardarse en un archivo binario con {@link #guardar(Path, long)} y abrirse
+ * después en otro proceso con {@link #abrir(Path)}, sin consultar la base de datos. El archivo
+ * contiene una cabecera, el diccionario de marcas, las matrículas con ancho fijo y las columnas
+ * primitivas tal cual, seguidos de un CRC32 de todo lo anterior. Al abrirlo se proyecta en memoria
+ * y las columnas se copian en bloque; si el CRC no coincide, el archivo se rechaza.
+ */
+public final class InstantaneaInventario {
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    // Cabecera del archivo: "CONCINV" seguido de la versión del formato
+    private static final long MAGICO = 0x434F4E43494E5600L;
+    private static final int VERSION_FORMATO = 1;
+    // Mágico + formato + versión de cambios + creación + filas + ancho de matrícula + marcas
+    private static final int TAMANO_CABECERA = 8 + 4 + 8 + 8 + 4 + 4 + 4;
+    private static final int TAMANO_CRC = 4;
+
+    // Columnas, ordenadas por precio
+    private final String[] matriculas;
+    private final int[] idsMarca;
+    private final int[] kms;
+    private final float[] precios;
+    private final int[] idsPropietario;
+    private final int filas;
+
+    // Diccionario de marcas: id -> marca tal y como se leyó, y marca normalizada -> id
+    private final String[] marcas;
+    private final Map<String, Integer> idPorMarca;
+    // Marca tal y como se leyó -> id, para evitar normalizar en las búsquedas más habituales
+    private final Map<String, Integer> idPorMarcaExacta;
+    // Posiciones de los vehículos de cada marca, en orden de precio
+    private final int[][] posicionesPorMarca;
+
+    private final long cargadaEnMs;
+    // Versión del registro de cambios en el momento de la carga, o -1 si no se conoce
+    private final long versionCambios;
+
+    private InstantaneaInventario(String[] matriculas, int[] idsMarca, int[] kms, float[] precios,
+                                  int[] idsPropietario, int filas, List<String> marcas,
+                                  Map<String, Integer> idPorMarca, long cargadaEnMs, long versionCambios) {
+        this.matriculas = matriculas;
+        this.idsMarca = idsMarca;
+        this.kms = kms;
+        this.precios = precios;
+        this.idsPropietario = idsPropietario;
+        this.filas = filas;
+        this.marcas = marcas.toArray(new String[0]);
+        this.idPorMarca = idPorMarca;
+        this.idPorMarcaExacta = new HashMap<>();
+        for (int id = 0; id < this.marcas.length; id++) {
+            idPorMarcaExacta.put(this.marcas[id], id);
+        }
+        this.posicionesPorMarca = indexarMarcas(idsMarca, filas, this.marcas.length);
+        this.cargadaEnMs = cargadaEnMs;
+        this.versionCambios = versionCambios;
+    }
+
+    /**
+     * Lee la tabla vehiculos entera y construye una instantánea sin versión de cambios.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return La instantánea.
+     * @throws SQLException Si falla la lectura.
+     */
+    public static InstantaneaInventario cargar(Connection connection) throws SQLException {
+        return cargar(connection, -1);
+    }
+
+    /**
+     * Lee la tabla vehiculos entera y construye una instantánea.
+     *
+     * @param connection     La conexión a la base de datos.
+     * @param versionCambios La versión de {@link CambiosDAO#obtenerVersionActual(Connection)} leída
+     *                       justo antes, o -1 si no se conoce.
+     * @return La instantánea.
+     * @throws SQLException Si falla la lectura.
+     */
+    public static InstantaneaInventario cargar(Connection connection, long versionCambios) throws SQLException {
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh, id_prop FROM vehiculos " +
+                "ORDER BY precio_veh, mat_veh";
+        String[] matriculas = new String[CAPACIDAD_INICIAL];
+        int[] idsMarca = new int[CAPACIDAD_INICIAL];
+        int[] kms = new int[CAPACIDAD_INICIAL];
+        float[] precios = new float[CAPACIDAD_INICIAL];
+        int[] idsPropietario = new int[CAPACIDAD_INICIAL];
+        List<String> marcas = new ArrayList<>();
+        Map<String, Integer> idPorMarca = new HashMap<>();
+        int filas = 0;
+
+        try (PreparedStatement stmt = Consultas.prepararLectura(connection, sql, Consultas.TAMANO_FETCH_POR_DEFECTO);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                if (filas == matriculas.length) {
+                    int capacidad = filas * 2;
+                    matriculas = Arrays.copyOf(matriculas, capacidad);
+                    idsMarca = Arrays.copyOf(idsMarca, capacidad);
+                    kms = Arrays.copyOf(kms, capacidad);
+                    precios = Arrays.copyOf(precios, capacidad);
+                    idsPropietario = Arrays.copyOf(idsPropietario, capacidad);
+                }
+                matriculas[filas] = rs.getString(1);
+                String marca = rs.getString(2);
+                String clave = marca == null ? null : CacheVehiculos.normalizarMarca(marca);
+                Integer idMarca = idPorMarca.get(clave);
+                if (idMarca == null) {
+                    idMarca = marcas.size();
+                    marcas.add(marca);
+                    idPorMarca.put(clave, idMarca);
+                }
+                idsMarca[filas] = idMarca;
+                kms[filas] = rs.getInt(3);
+                precios[filas] = rs.getFloat(4);
+                idsPropietario[filas] = rs.getInt(5);
+                filas++;
+            }
+        }
+        return new InstantaneaInventario(matriculas, idsMarca, kms, precios, idsPropietario, filas,
+                marcas, idPorMarca, System.currentTimeMillis(), versionCambios);
+    }
+
+    /**
+     * Abre una instantánea guardada con {@link #guardar(Path, long)}.
+     *
+     * @param archivo El archivo de la instantánea.
+     * @return La instantánea, con la versión de cambios y el instante de carga con que se guardó.
+     * @throws IOException Si no se puede leer el archivo, no es una instantánea o está dañado.
+     */
+    public static InstantaneaInventario abrir(Path archivo) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano < TAMANO_CABECERA + TAMANO_CRC || tamano > Integer.MAX_VALUE) {
+                throw new IOException("El archivo no es una instantánea del inventario: " + archivo);
+            }
+            buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano);
+        }
+        if (buffer.getLong(0) != MAGICO) {
+            throw new IOException("El archivo no es una instantánea del inventario: " + archivo);
+        }
+        if (buffer.getInt(8) != VERSION_FORMATO) {
+            throw new IOException("Versión de formato no admitida en " + archivo + ": " + buffer.getInt(8));
+        }
+        int fin = buffer.capacity() - TAMANO_CRC;
+        if (crc(buffer, fin) != buffer.getInt(fin)) {
+            throw new IOException("La instantánea está dañada (el CRC no coincide): " + archivo);
+        }
+
+        buffer.position(12);
+        long versionCambios = buffer.getLong();
+        long cargadaEnMs = buffer.getLong();
+        int filas = buffer.getInt();
+        int anchoMatricula = buffer.getInt();
+        int numMarcas = buffer.getInt();
+
+        List<String> marcas = new ArrayList<>(numMarcas);
+        Map<String, Integer> idPorMarca = new HashMap<>();
+        for (int id = 0; id < numMarcas; id++) {
+            int longitud = buffer.getInt();
+            String marca = null;
+            if (longitud >= 0) {
+                byte[] bytes = new byte[longitud];
+                buffer.get(bytes);
+                marca = new String(bytes, StandardCharsets.UTF_8);
+            }
+            marcas.add(marca);
+            idPorMarca.put(marca == null ? null : CacheVehiculos.normalizarMarca(marca), id);
+        }
+
+        String[] matriculas = new String[filas];
+        byte[] bytesMatriculas = new byte[filas * anchoMatricula];
+        buffer.get(bytesMatriculas);
+        for (int i = 0; i < filas; i++) {
+            int desde = i * anchoMatricula;
+            int longitud = anchoMatricula;
+            while (longitud > 0 && bytesMatriculas[desde + longitud - 1] == 0) {
+                longitud--;
+            }
+            matriculas[i] = new String(bytesMatriculas, desde, longitud, StandardCharsets.UTF_8);
+        }
+        int[] idsMarca = new int[filas];
+        int[] kms = new int[filas];
+        float[] precios = new float[filas];
+        int[] idsPropietario = new int[filas];
+        buffer.asIntBuffer().get(idsMarca);
+        buffer.position(buffer.position() + filas * Integer.BYTES);
+        buffer.asIntBuffer().get(kms);
+        buffer.position(buffer.position() + filas * Integer.BYTES);
+        buffer.asFloatBuffer().get(precios);
+        buffer.position(buffer.position() + filas * Float.BYTES);
+        buffer.asIntBuffer().get(idsPropietario);
+        if (buffer.position() + filas * Integer.BYTES != fin) {
+            throw new IOException("La instantánea está dañada (tamaño inesperado): " + archivo);
+        }
+        for (int i = 0; i < filas; i++) {
+            if (idsMarca[i] < 0 || idsMarca[i] >= numMarcas) {
+                throw new IOException("La instantánea está dañada (marca fuera de rango): " + archivo);
+            }
+        }
+        return new InstantaneaInventario(matriculas, idsMarca, kms, precios, idsPropietario, filas,
+                marcas, idPorMarca, cargadaEnMs, versionCambios);
+    }
+
+    /**
+     * Guarda la instantánea en un archivo binario. Se escribe primero en un archivo temporal junto
+     * al destino y después se renombra, así que quien abra el archivo nunca ve uno a medio escribir.
+     *
+     * @param archivo        El archivo de destino; si existe, se sustituye.
+     * @param versionCambios La versión del registro de cambios que se guarda con la instantánea,
+     *                       normalmente {@link #versionCambios()}.
+     * @return El tamaño del archivo, en bytes.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public long guardar(Path archivo, long versionCambios) throws IOException {
+        byte[][] bytesMarcas = new byte[marcas.length][];
+        long tamano = TAMANO_CABECERA + TAMANO_CRC;
+        for (int id = 0; id < marcas.length; id++) {
+            bytesMarcas[id] = marcas[id] == null ? null : marcas[id].getBytes(StandardCharsets.UTF_8);
+            tamano += Integer.BYTES + (bytesMarcas[id] == null ? 0 : bytesMarcas[id].length);
+        }
+        byte[][] bytesMatriculas = new byte[filas][];
+        int anchoMatricula = 0;
+        for (int i = 0; i < filas; i++) {
+            bytesMatriculas[i] = matriculas[i].getBytes(StandardCharsets.UTF_8);
+            anchoMatricula = Math.max(anchoMatricula, bytesMatriculas[i].length);
+        }
+        tamano += (long) filas * (anchoMatricula + 3 * Integer.BYTES + Float.BYTES);
+        if (tamano > Integer.MAX_VALUE) {
+            throw new IOException("La instantánea es demasiado grande para un archivo: " + tamano + " bytes");
+        }
+
+        Path absoluto = archivo.toAbsolutePath();
+        Path temporal = Files.createTempFile(absoluto.getParent(), absoluto.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamano);
+                buffer.putLong(MAGICO)
+                        .putInt(VERSION_FORMATO)
+                        .putLong(versionCambios)
+                        .putLong(cargadaEnMs)
+                        .putInt(filas)
+                        .putInt(anchoMatricula)
+                        .putInt(marcas.length);
+                for (byte[] marca : bytesMarcas) {
+                    if (marca == null) {
+                        buffer.putInt(-1);
+                    } else {
+                        buffer.putInt(marca.length).put(marca);
+                    }
+                }
+                for (byte[] matricula : bytesMatriculas) {
+                    buffer.put(matricula);
+                    // Relleno con ceros hasta el ancho fijo
+                    buffer.position(buffer.position() + anchoMatricula - matricula.length);
+                }
+                buffer.asIntBuffer().put(idsMarca, 0, filas);
+                buffer.position(buffer.position() + filas * Integer.BYTES);
+                buffer.asIntBuffer().put(kms, 0, filas);
+                buffer.position(buffer.position() + filas * Integer.BYTES);
+                buffer.asFloatBuffer().put(precios, 0, filas);
+                buffer.position(buffer.position() + filas * Float.BYTES);
+                buffer.asIntBuffer().put(idsPropietario, 0, filas);
+                int fin = (int) tamano - TAMANO_CRC;
+                buffer.putInt(fin, crc(buffer, fin));
+                buffer.force();
+            }
+            Files.move(temporal, absoluto, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+        return tamano;
+    }
+
+    /**
+     * @return El número de vehículos de la instantánea.
+     */
+    public int tamano() {
+        return filas;
+    }
+
+    /**
+     * @return El instante de carga, en milisegundos desde la época.
+     */
+    public long cargadaEnMs() {
+        return cargadaEnMs;
+    }
+
+    /**
+     * @return La versión del registro de cambios de la carga, o -1 si no se conoce.
+     */
+    public long versionCambios() {
+        return versionCambios;
+    }
+
+    /**
+     * Entrega cada vehículo de la instantánea a la acción indicada, en orden de precio.
+     *
+     * @param accion La acción que recibe cada vehículo.
+     * @return El número de vehículos recorridos.
+     */
+    public long recorrer(Consumer<Vehiculo> accion) {
+        for (int i = 0; i < filas; i++) {
+            accion.accept(vehiculo(i));
+        }
+        return filas;
+    }
+
+    /**
+     * Exporta la instantánea a un archivo con el mismo formato que
+     * {@link FuncionalidadesExtrasDAO#exportarInventario(Connection, Path, FormatoExportacion, boolean)},
+     * sin consultar la base de datos. Las filas quedan en orden de precio.
+     *
+     * @param destino El archivo de destino.
+     * @param formato El formato del archivo.
+     * @param gzip    true para comprimir el archivo con gzip.
+     * @return El número de filas y de bytes escritos.
+     * @throws IOException Si no se puede escribir el archivo.
+     */
+    public ResultadoExportacion exportar(Path destino, FormatoExportacion formato, boolean gzip) throws IOException {
+        long inicio = System.nanoTime();
+        EscritorInventario escritor = EscritorInventario.abrir(destino, formato, gzip);
+        try (escritor) {
+            escritor.escribirCabecera();
+            for (int i = 0; i < filas; i++) {
+                escritor.escribir(matriculas[i], marcas[idsMarca[i]], kms[i], precios[i]);
+            }
+            escritor.escribirPie();
+        }
+        // bytes() solo es definitivo con el escritor cerrado
+        return new ResultadoExportacion(destino, escritor.filas(), escritor.bytes(), System.nanoTime() - inicio);
+    }
+
+    /**
+     * Busca los vehículos con precio entre los límites indicados, ambos incluidos.
+     *
+     * @param precioMin El precio mínimo.
+     * @param precioMax El precio máximo.
+     * @return Los vehículos ordenados por precio.
+     */
+    public List<Vehiculo> buscarPorPrecio(float precioMin, float precioMax) {
+        int desde = primeraConPrecioDesde(precioMin);
+        int hasta = primeraConPrecioMayorQue(precioMax);
+        List<Vehiculo> vehiculos = new ArrayList<>(Math.max(0, hasta - desde));
+        for (int i = desde; i < hasta; i++) {
+            vehiculos.add(vehiculo(i));
+        }
+        return vehiculos;
+    }
+
+    /**
+     * Cuenta los vehículos con precio entre los límites indicados, sin crear ningún objeto.
+     *
+     * @param precioMin El precio mínimo.
+     * @param precioMax El precio máximo.
+     * @return El número de vehículos.
+     */
+    public int contarPorPrecio(float precioMin, float precioMax) {
+        return Math.max(0, primeraConPrecioMayorQue(precioMax) - primeraConPrecioDesde(precioMin));
+    }
+
+    /**
+     * Busca los vehículos de una marca.
+     *
+     * @param marca La marca.
+     * @return Los vehículos de la marca ordenados por precio.
+     */
+    public List<Vehiculo> buscarPorMarca(String marca) {
+        return buscarPorMarcaYPrecio(marca, Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Busca los vehículos de una marca con precio entre los límites indicados, ambos incluidos.
+     *
+     * @param marca     La marca.
+     * @param precioMin El precio mínimo.
+     * @param precioMax El precio máximo.
+     * @return Los vehículos ordenados por precio.
+     */
+    public List<Vehiculo> buscarPorMarcaYPrecio(String marca, float precioMin, float precioMax) {
+        int[] posiciones = posicionesDeMarca(marca);
+        if (posiciones == null) {
+            return new ArrayList<>();
+        }
+        int desde = primeraPosicionConPrecioDesde(posiciones, precioMin);
+        int hasta = primeraPosicionConPrecioMayorQue(posiciones, precioMax);
+        List<Vehiculo> vehiculos = new ArrayList<>(Math.max(0, hasta - desde));
+        for (int i = desde; i < hasta; i++) {
+            vehiculos.add(vehiculo(posiciones[i]));
+        }
+        return vehiculos;
+    }
+
+    /**
+     * Cuenta los vehículos de una marca con precio entre los límites indicados, sin crear ningún objeto.
+     *
+     * @param marca     La marca.
+     * @param precioMin El precio mínimo.
+     * @param precioMax El precio máximo.
+     * @return El número de vehículos.
+     */
+    public int contarPorMarcaYPrecio(String marca, float precioMin, float precioMax) {
+        int[] posiciones = posicionesDeMarca(marca);
+        if (posiciones == null) {
+            return 0;
+        }
+        return Math.max(0, primeraPosicionConPrecioMayorQue(posiciones, precioMax)
+                - primeraPosicionConPrecioDesde(posiciones, precioMin));
+    }
+
+    private Vehiculo vehiculo(int fila) {
+        return new Vehiculo(matriculas[fila], marcas[idsMarca[fila]], kms[fila], precios[fila], idsPropietario[fila]);
+    }
+
+    private int[] posicionesDeMarca(String marca) {
+        Integer idMarca = idPorMarcaExacta.get(marca);
+        if (idMarca == null && marca != null) {
+            idMarca = idPorMarca.get(CacheVehiculos.normalizarMarca(marca));
+        }
+        return idMarca == null ? null : posicionesPorMarca[idMarca];
+    }
+
+    // ---- Búsquedas binarias ----
+
+    private int primeraConPrecioDesde(float precio) {
+        int bajo = 0;
+        int alto = filas;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (precios[medio] < precio) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private int primeraConPrecioMayorQue(float precio) {
+        int bajo = 0;
+        int alto = filas;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (precios[medio] <= precio) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private int primeraPosicionConPrecioDesde(int[] posiciones, float precio) {
+        int bajo = 0;
+        int alto = posiciones.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (precios[posiciones[medio]] < precio) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private int primeraPosicionConPrecioMayorQue(int[] posiciones, float precio) {
+        int bajo = 0;
+        int alto = posiciones.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (precios[posiciones[medio]] <= precio) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    /**
+     * Calcula el CRC32 de los primeros bytes del buffer sin mover su posición.
+     */
+    private static int crc(ByteBuffer buffer, int hasta) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(0).limit(hasta));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Agrupa las filas por marca conservando el orden por precio.
+     */
+    private static int[][] indexarMarcas(int[] idsMarca, int filas, int numMarcas) {
+        int[] cuentas = new int[numMarcas];
+        for (int i = 0; i < filas; i++) {
+            cuentas[idsMarca[i]]++;
+        }
+        int[][] posiciones = new int[numMarcas][];
+        for (int m = 0; m < numMarcas; m++) {
+            posiciones[m] = new int[cuentas[m]];
+        }
+        int[] siguiente = new int[numMarcas];
+        for (int i = 0; i < filas; i++) {
+            int m = idsMarca[i];
+            posiciones[m][siguiente[m]++] = i;
+        }
+        return posiciones;
+    }
+}
@@ -0,0 +1,171 @@
+package com.prog11.bbdd;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mantiene la {@link InstantaneaInventario} en uso para las búsquedas en memoria.
+ * Está vacía por defecto; se llena con {@link #refrescar(Connection)} o con un refresco periódico.
+ * <p>
+ * Cada refresco construye una instantánea nueva y la publica de forma atómica. Los lectores que
+ * ya tenían la anterior terminan con ella sin bloquearse, y los siguientes ven la nueva. Las
+ * escrituras hechas después de un refresco no se ven hasta el siguiente, así que solo debe usarse
+ * donde se acepten resultados con ese retraso.
+ * <p>
+ * La instantánea también puede guardarse en un archivo con {@link #guardar(Connection, Path)} y
+ * abrirse al arrancar otro proceso con {@link #abrir(Path)}, sin leer la tabla. Con
+ * {@link #estaAlDia(Connection)} se comprueba si ha habido escrituras desde que se guardó.
+ */
+public class InventarioEnMemoria {
+    private static volatile InstantaneaInventario actual;
+    private static ScheduledExecutorService refresco;
+
+    private InventarioEnMemoria() {
+    }
+
+    /**
+     * @return La instantánea en uso, o null si todavía no se ha cargado ninguna.
+     */
+    public static InstantaneaInventario obtener() {
+        return actual;
+    }
+
+    /**
+     * Carga una instantánea nueva y la publica en lugar de la actual.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return El número de vehículos cargados, o -1 en caso de error (se mantiene la instantánea anterior).
+     */
+    public static int refrescar(Connection connection) {
+        try {
+            InstantaneaInventario nueva = InstantaneaInventario.cargar(connection);
+            actual = nueva;
+            return nueva.tamano();
+        } catch (SQLException e) {
+            System.err.println("Error al cargar el inventario en memoria: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Carga una instantánea nueva con la versión actual del registro de cambios, la publica
+     * y la guarda en un archivo.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param archivo    El archivo de destino; si existe, se sustituye.
+     * @return El número de vehículos y el tamaño del archivo, o null en caso de error.
+     */
+    public static ResultadoExportacion guardar(Connection connection, Path archivo) {
+        long inicio = System.nanoTime();
+        // La versión se lee antes que las filas, así que una escritura intermedia la deja atrasada y no al revés
+        long versionCambios = CambiosDAO.obtenerVersionActual(connection);
+        if (versionCambios < 0) {
+            return null;
+        }
+        InstantaneaInventario nueva;
+        try {
+            nueva = InstantaneaInventario.cargar(connection, versionCambios);
+        } catch (SQLException e) {
+            System.err.println("Error al cargar el inventario en memoria: " + e.getMessage());
+            return null;
+        }
+        actual = nueva;
+        try {
+            long bytes = nueva.guardar(archivo, versionCambios);
+            return new ResultadoExportacion(archivo, nueva.tamano(), bytes, System.nanoTime() - inicio);
+        } catch (IOException e) {
+            System.err.println("Error al guardar la instantánea del inventario: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Abre una instantánea guardada con {@link #guardar(Connection, Path)} y la publica en lugar de la actual.
+     *
+     * @param archivo El archivo de la instantánea.
+     * @return El número de vehículos cargados, o -1 si el archivo no existe, no es válido o está dañado
+     * (se mantiene la instantánea anterior).
+     */
+    public static int abrir(Path archivo) {
+        try {
+            InstantaneaInventario nueva = InstantaneaInventario.abrir(archivo);
+            actual = nueva;
+            return nueva.tamano();
+        } catch (IOException e) {
+            System.err.println("Error al abrir la instantánea del inventario: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Comprueba si la instantánea en uso refleja la última escritura registrada en la base de datos.
+     * <p>
+     * Solo se compara la versión más alta del registro de cambios. Una transacción que obtuvo una
+     * versión menor que la de la instantánea pero confirma después de cargarla no cambia esa versión,
+     * así que con escrituras concurrentes puede devolver true aunque falte ese cambio (véase el margen
+     * de {@link CambiosDAO}). Para asegurarse hay que volver a cargar la instantánea pasado el tiempo
+     * de la transacción de escritura más larga.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return true si no ha habido cambios desde la carga; false si los ha habido, si no hay instantánea,
+     * si su versión no se conoce o si hay un error.
+     */
+    public static boolean estaAlDia(Connection connection) {
+        InstantaneaInventario instantanea = actual;
+        if (instantanea == null || instantanea.versionCambios() < 0) {
+            return false;
+        }
+        return CambiosDAO.obtenerVersionActual(connection) == instantanea.versionCambios();
+    }
+
+    /**
+     * Refresca la instantánea ahora y después cada cierto tiempo, con conexiones de lectura de {@link ConnectionDB}.
+     * Si ya había un refresco programado, se sustituye.
+     *
+     * @param periodoMs El tiempo entre refrescos, en milisegundos.
+     */
+    public static synchronized void programarRefresco(long periodoMs) {
+        if (periodoMs < 1) {
+            throw new IllegalArgumentException("El periodo de refresco debe ser positivo");
+        }
+        detenerRefresco();
+        refresco = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "refresco-inventario");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        refresco.scheduleWithFixedDelay(() -> {
+            Connection connection = ConnectionDB.openReadConnection();
+            if (connection != null) {
+                try {
+                    refrescar(connection);
+                } finally {
+                    ConnectionDB.closeConnection(connection);
+                }
+            }
+        }, 0, periodoMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Detiene el refresco periódico, si lo hay. La instantánea actual se mantiene.
+     */
+    public static synchronized void detenerRefresco() {
+        if (refresco != null) {
+            refresco.shutdownNow();
+            refresco = null;
+        }
+    }
+
+    /**
+     * Detiene el refresco y descarta la instantánea.
+     */
+    public static synchronized void vaciar() {
+        detenerRefresco();
+        actual = null;
+    }
+}
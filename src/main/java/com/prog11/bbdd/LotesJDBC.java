@@ -0,0 +1,161 @@
+package com.prog11.bbdd;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Utilidades para ejecutar una misma sentencia sobre muchas filas con
+ * {@code addBatch}/{@code executeBatch}, en lotes de tamaño acotado.
+ */
+class LotesJDBC {
+
+    // Tamaño de lote usado cuando el llamante no indica otro
+    static final int TAMANO_LOTE_POR_DEFECTO = 1000;
+
+    /**
+     * Asigna los parámetros de una fila a la sentencia preparada.
+     *
+     * @param <T> El tipo de las filas.
+     */
+    @FunctionalInterface
+    interface AsignadorParametros<T> {
+        void asignar(PreparedStatement stmt, T fila) throws SQLException;
+    }
+
+    private LotesJDBC() {
+    }
+
+    /**
+     * Ejecuta la sentencia para cada fila, enviando las filas en lotes de {@code tamanoLote}.
+     * Si la conexión está en modo autocommit, se confirma una transacción por lote;
+     * si no, se respeta la transacción del llamante. Si un lote termina con una excepción,
+     * en modo autocommit se deshace ese lote antes de propagarla.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param sql        La sentencia a ejecutar.
+     * @param operacion  La operación del DAO, para {@link ControlConsultas}.
+     * @param filas      Las filas a procesar.
+     * @param tamanoLote El número máximo de filas por lote.
+     * @param asignador  Asigna los parámetros de cada fila.
+     * @param <T>        El tipo de las filas.
+     * @return Un array con 0 para cada fila procesada correctamente y -1 para cada fila fallida.
+     * @throws SQLException Si falla la preparación de la sentencia o la confirmación de un lote.
+     */
+    static <T> int[] ejecutar(Connection connection,
+                              String sql,
+                              OperacionDAO operacion,
+                              List<T> filas,
+                              int tamanoLote,
+                              AsignadorParametros<T> asignador) throws SQLException {
+        return ejecutar(connection, sql, operacion, filas, tamanoLote, 1, asignador);
+    }
+
+    /**
+     * Igual que {@link #ejecutar(Connection, String, OperacionDAO, List, int, AsignadorParametros)},
+     * pero da por buena una fila cuando afecta al menos a {@code filasMinimas} filas. Con
+     * {@code INSERT ... ON DUPLICATE KEY UPDATE}, MariaDB cuenta 1 si inserta, 2 si actualiza
+     * y 0 si la fila ya tenía esos valores, así que se usa 0.
+     *
+     * @param filasMinimas El número mínimo de filas afectadas para dar una fila por buena.
+     */
+    static <T> int[] ejecutar(Connection connection,
+                              String sql,
+                              OperacionDAO operacion,
+                              List<T> filas,
+                              int tamanoLote,
+                              int filasMinimas,
+                              AsignadorParametros<T> asignador) throws SQLException {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo: " + tamanoLote);
+        }
+        int[] resultados = new int[filas.size()];
+        Arrays.fill(resultados, -1);
+        boolean autoCommit = connection.getAutoCommit();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, operacion)) {
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            for (int inicio = 0; inicio < filas.size(); inicio += tamanoLote) {
+                int fin = Math.min(inicio + tamanoLote, filas.size());
+                ejecutarLote(stmt, filas, inicio, fin, filasMinimas, asignador, resultados);
+                if (autoCommit) {
+                    connection.commit();
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Sin deshacer, al restaurar el autocommit se confirmaría el lote a medias
+            if (autoCommit) {
+                connection.rollback();
+            }
+            throw e;
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * @return Los marcadores de una lista {@code IN} de {@code n} parámetros: {@code ?, ?, ...}.
+     */
+    static String marcadores(int n) {
+        StringBuilder marcadores = new StringBuilder(n * 3);
+        for (int i = 0; i < n; i++) {
+            marcadores.append(i == 0 ? "?" : ", ?");
+        }
+        return marcadores.toString();
+    }
+
+    /**
+     * Ejecuta las filas [inicio, fin) como un lote. Si el lote falla, las filas que el
+     * driver no da por buenas se reintentan una a una para conocer el resultado de cada fila.
+     */
+    private static <T> void ejecutarLote(PreparedStatement stmt,
+                                         List<T> filas,
+                                         int inicio,
+                                         int fin,
+                                         int filasMinimas,
+                                         AsignadorParametros<T> asignador,
+                                         int[] resultados) throws SQLException {
+        for (int i = inicio; i < fin; i++) {
+            asignador.asignar(stmt, filas.get(i));
+            stmt.addBatch();
+        }
+        try {
+            marcar(stmt.executeBatch(), inicio, filasMinimas, resultados);
+            return;
+        } catch (BatchUpdateException e) {
+            stmt.clearBatch();
+            int[] parciales = e.getUpdateCounts();
+            if (parciales != null) {
+                marcar(parciales, inicio, filasMinimas, resultados);
+            }
+        }
+        for (int i = inicio; i < fin; i++) {
+            if (resultados[i] == 0) {
+                continue;
+            }
+            try {
+                asignador.asignar(stmt, filas.get(i));
+                resultados[i] = stmt.executeUpdate() >= filasMinimas ? 0 : -1;
+            } catch (SQLException e) {
+                System.err.println("Error en la fila " + i + " del lote: " + e.getMessage());
+                resultados[i] = -1;
+            }
+        }
+    }
+
+    private static void marcar(int[] cuentas, int inicio, int filasMinimas, int[] resultados) {
+        for (int i = 0; i < cuentas.length && inicio + i < resultados.length; i++) {
+            int cuenta = cuentas[i];
+            // EXECUTE_FAILED es negativo, así que nunca alcanza filasMinimas
+            resultados[inicio + i] = cuenta >= filasMinimas || cuenta == Statement.SUCCESS_NO_INFO ? 0 : -1;
+        }
+    }
+}
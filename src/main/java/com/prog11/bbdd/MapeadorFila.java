@@ -0,0 +1,22 @@
+package com.prog11.bbdd;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un {@link ResultSet} en un objeto.
+ *
+ * @param <T> El tipo del objeto resultante.
+ */
+@FunctionalInterface
+public interface MapeadorFila<T> {
+
+    /**
+     * Lee la fila actual del resultado. No debe avanzar el cursor.
+     *
+     * @param rs El resultado posicionado en la fila a leer.
+     * @return El objeto con los datos de la fila.
+     * @throws SQLException Si falla la lectura de alguna columna.
+     */
+    T mapear(ResultSet rs) throws SQLException;
+}
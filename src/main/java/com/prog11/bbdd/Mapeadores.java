@@ -0,0 +1,61 @@
+package com.prog11.bbdd;
+
+/**
+ * Mapeadores reutilizables para las consultas de los DAO. Leen las columnas por
+ * posición, por lo que cada consulta debe seleccionar las columnas en el orden indicado.
+ */
+public class Mapeadores {
+
+    /**
+     * Columnas: mat_veh, marca_veh, kms_veh, precio_veh.
+     */
+    public static final MapeadorFila<Vehiculo> VEHICULO = rs -> new Vehiculo(
+            rs.getString(1),
+            rs.getString(2),
+            rs.getInt(3),
+            rs.getFloat(4),
+            0);
+
+    /**
+     * Columnas: mat_veh, marca_veh, kms_veh, precio_veh, nombre_prop.
+     */
+    public static final MapeadorFila<Vehiculo> VEHICULO_CON_PROPIETARIO = rs -> new Vehiculo(
+            rs.getString(1),
+            rs.getString(2),
+            rs.getInt(3),
+            rs.getFloat(4),
+            0,
+            rs.getString(5));
+
+    /**
+     * Columnas: mat_veh, marca_veh, kms_veh, precio_veh, id_prop.
+     */
+    public static final MapeadorFila<Vehiculo> VEHICULO_CON_ID_PROPIETARIO = rs -> new Vehiculo(
+            rs.getString(1),
+            rs.getString(2),
+            rs.getInt(3),
+            rs.getFloat(4),
+            rs.getInt(5));
+
+    /**
+     * Columnas: mat_veh, marca_veh, kms_veh, precio_veh, id_prop, nombre_prop.
+     */
+    public static final MapeadorFila<Vehiculo> VEHICULO_COMPLETO = rs -> new Vehiculo(
+            rs.getString(1),
+            rs.getString(2),
+            rs.getInt(3),
+            rs.getFloat(4),
+            rs.getInt(5),
+            rs.getString(6));
+
+    /**
+     * Columnas: id_prop, nombre_prop, dni_prop.
+     */
+    public static final MapeadorFila<Propietario> PROPIETARIO = rs -> new Propietario(
+            rs.getInt(1),
+            rs.getString(2),
+            rs.getString(3));
+
+    private Mapeadores() {
+    }
+}
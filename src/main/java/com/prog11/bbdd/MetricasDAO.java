@@ -0,0 +1,144 @@
+package com.prog11.bbdd;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Métricas de la capa de acceso a datos: llamadas, errores, filas y latencias (p50, p99 y máxima)
+ * de cada {@link OperacionDAO}, y el tiempo de espera para obtener una conexión del pool.
+ * <p>
+ * Todos los métodos de los DAO registran aquí cada llamada. El registro usa solo contadores
+ * atómicos, sin bloqueos ni reservas de memoria, por lo que puede dejarse activo en producción.
+ * Las métricas se consultan con {@link #obtener(OperacionDAO)}, en texto con {@link #volcar()}
+ * o por JMX tras llamar a {@link #publicarEnJMX()}.
+ */
+public class MetricasDAO {
+    private static final String DOMINIO_JMX = "com.prog11.bbdd:type=MetricasDAO,operacion=";
+
+    private static final MetricasOperacion[] OPERACIONES = new MetricasOperacion[OperacionDAO.values().length];
+    private static final MetricasOperacion ESPERA_CONEXION = new MetricasOperacion();
+    private static boolean publicadas;
+
+    static {
+        for (int i = 0; i < OPERACIONES.length; i++) {
+            OPERACIONES[i] = new MetricasOperacion();
+        }
+    }
+
+    private MetricasDAO() {
+    }
+
+    /**
+     * Registra una llamada terminada sin error.
+     *
+     * @param operacion La operación.
+     * @param inicio    El instante de inicio ({@link System#nanoTime()}).
+     * @param filas     Las filas devueltas o afectadas.
+     */
+    static void registrar(OperacionDAO operacion, long inicio, long filas) {
+        OPERACIONES[operacion.ordinal()].registrar(System.nanoTime() - inicio, filas);
+    }
+
+    /**
+     * Registra una llamada terminada con error.
+     *
+     * @param operacion La operación.
+     * @param inicio    El instante de inicio ({@link System#nanoTime()}).
+     */
+    static void registrarError(OperacionDAO operacion, long inicio) {
+        OPERACIONES[operacion.ordinal()].registrarError(System.nanoTime() - inicio);
+    }
+
+    /**
+     * Registra la espera para obtener una conexión del pool.
+     *
+     * @param nanos     El tiempo de espera en nanosegundos.
+     * @param concedida false si se agotó el tiempo de espera.
+     */
+    static void registrarEsperaConexion(long nanos, boolean concedida) {
+        if (concedida) {
+            ESPERA_CONEXION.registrar(nanos, 0);
+        } else {
+            ESPERA_CONEXION.registrarError(nanos);
+        }
+    }
+
+    /**
+     * @param operacion La operación.
+     * @return Las métricas de la operación.
+     */
+    public static MetricasOperacionMXBean obtener(OperacionDAO operacion) {
+        return OPERACIONES[operacion.ordinal()];
+    }
+
+    /**
+     * @return Las métricas de espera de conexión: préstamos como llamadas y tiempos de espera agotados como errores.
+     */
+    public static MetricasOperacionMXBean obtenerEsperaConexion() {
+        return ESPERA_CONEXION;
+    }
+
+    /**
+     * Publica las métricas de cada operación y de la espera de conexión en el servidor JMX de la plataforma,
+     * con nombres {@code com.prog11.bbdd:type=MetricasDAO,operacion=<método>}. Llamarlo más de una vez no tiene efecto.
+     */
+    public static synchronized void publicarEnJMX() {
+        if (publicadas) {
+            return;
+        }
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (OperacionDAO operacion : OperacionDAO.values()) {
+                servidor.registerMBean(OPERACIONES[operacion.ordinal()], new ObjectName(DOMINIO_JMX + operacion.metodo()));
+            }
+            servidor.registerMBean(ESPERA_CONEXION, new ObjectName(DOMINIO_JMX + "esperaConexion"));
+            publicadas = true;
+        } catch (JMException e) {
+            System.err.println("Error al publicar las métricas en JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Genera un volcado en texto de las operaciones con al menos una llamada y de la espera de conexión.
+     *
+     * @return Una línea por operación con llamadas, errores, filas y latencias en milisegundos.
+     */
+    public static String volcar() {
+        StringBuilder texto = new StringBuilder(2048);
+        texto.append(String.format(Locale.ROOT, "%-32s %10s %8s %12s %10s %10s %10s %10s%n",
+                "operacion", "llamadas", "errores", "filas", "media_ms", "p50_ms", "p99_ms", "max_ms"));
+        for (OperacionDAO operacion : OperacionDAO.values()) {
+            volcar(operacion.metodo(), OPERACIONES[operacion.ordinal()], texto);
+        }
+        volcar("esperaConexion", ESPERA_CONEXION, texto);
+        return texto.toString();
+    }
+
+    /**
+     * Pone a cero todas las métricas.
+     */
+    public static void reiniciar() {
+        for (MetricasOperacion metricas : OPERACIONES) {
+            metricas.reiniciar();
+        }
+        ESPERA_CONEXION.reiniciar();
+    }
+
+    private static void volcar(String nombre, MetricasOperacion metricas, StringBuilder texto) {
+        if (metricas.getLlamadas() == 0) {
+            return;
+        }
+        texto.append(String.format(Locale.ROOT, "%-32s %10d %8d %12d %10.3f %10.3f %10.3f %10.3f%n",
+                nombre,
+                metricas.getLlamadas(),
+                metricas.getErrores(),
+                metricas.getFilas(),
+                metricas.getLatenciaMediaMs(),
+                metricas.getLatenciaP50Ms(),
+                metricas.getLatenciaP99Ms(),
+                metricas.getLatenciaMaximaMs()));
+    }
+}
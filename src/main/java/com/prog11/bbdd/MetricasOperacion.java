@@ -0,0 +1,72 @@
+package com.prog11.bbdd;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores e histograma de latencias de una operación.
+ */
+class MetricasOperacion implements MetricasOperacionMXBean {
+    private static final double NANOS_POR_MS = 1_000_000.0;
+
+    private final LongAdder llamadas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final LongAdder filas = new LongAdder();
+    private final HistogramaLatencias latencias = new HistogramaLatencias();
+
+    void registrar(long nanos, long filasOperacion) {
+        llamadas.increment();
+        if (filasOperacion > 0) {
+            filas.add(filasOperacion);
+        }
+        latencias.registrar(nanos);
+    }
+
+    void registrarError(long nanos) {
+        llamadas.increment();
+        errores.increment();
+        latencias.registrar(nanos);
+    }
+
+    @Override
+    public long getLlamadas() {
+        return llamadas.sum();
+    }
+
+    @Override
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    @Override
+    public long getFilas() {
+        return filas.sum();
+    }
+
+    @Override
+    public double getLatenciaMediaMs() {
+        return latencias.media() / NANOS_POR_MS;
+    }
+
+    @Override
+    public double getLatenciaP50Ms() {
+        return latencias.percentil(50) / NANOS_POR_MS;
+    }
+
+    @Override
+    public double getLatenciaP99Ms() {
+        return latencias.percentil(99) / NANOS_POR_MS;
+    }
+
+    @Override
+    public double getLatenciaMaximaMs() {
+        return latencias.maximo() / NANOS_POR_MS;
+    }
+
+    @Override
+    public void reiniciar() {
+        llamadas.reset();
+        errores.reset();
+        filas.reset();
+        latencias.reiniciar();
+    }
+}
@@ -0,0 +1,36 @@
+package com.prog11.bbdd;
+
+/**
+ * Métricas de una operación de los DAO, publicadas por JMX con {@link MetricasDAO#publicarEnJMX()}.
+ * Las latencias se expresan en milisegundos.
+ */
+public interface MetricasOperacionMXBean {
+
+    /**
+     * @return El número de llamadas, incluidas las que fallaron.
+     */
+    long getLlamadas();
+
+    /**
+     * @return El número de llamadas que terminaron con error.
+     */
+    long getErrores();
+
+    /**
+     * @return El número total de filas devueltas o afectadas.
+     */
+    long getFilas();
+
+    double getLatenciaMediaMs();
+
+    double getLatenciaP50Ms();
+
+    double getLatenciaP99Ms();
+
+    double getLatenciaMaximaMs();
+
+    /**
+     * Pone a cero las métricas de la operación.
+     */
+    void reiniciar();
+}
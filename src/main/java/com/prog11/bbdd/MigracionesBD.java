@@ -0,0 +1,223 @@
+package com.prog11.bbdd;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aplica al arrancar las migraciones de esquema pendientes, en orden de versión.
+ * <p>
+ * Cada migración es un script {@code db/migraciones/V<n>__<descripcion>.sql} del classpath.
+ * Las versiones aplicadas se guardan en la tabla {@code version_esquema}. En MariaDB las
+ * sentencias DDL confirman la transacción implícitamente, así que los scripts se escriben
+ * de forma idempotente ({@code IF NOT EXISTS}) para poder repetirlos si uno falla a medias.
+ */
+public class MigracionesBD {
+    // Scripts de migración en orden de versión
+    private static final String[] MIGRACIONES = {
+            "V1__esquema_inicial.sql",
+            "V2__indices_consultas.sql",
+            "V3__registro_cambios.sql",
+    };
+    private static final String RUTA = "/db/migraciones/";
+    // Bloqueo con nombre para que dos procesos no migren a la vez
+    private static final String BLOQUEO = "concesionario_migraciones";
+    private static final int ESPERA_BLOQUEO_SEG = 60;
+
+    private MigracionesBD() {
+    }
+
+    /**
+     * Aplica las migraciones que aún no se han aplicado en la base de datos.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return El número de migraciones aplicadas, o -1 en caso de error.
+     */
+    public static int migrar(Connection connection) {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS version_esquema (" +
+                    "version INT NOT NULL PRIMARY KEY, " +
+                    "script VARCHAR(200) NOT NULL, " +
+                    "aplicada TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+            bloquear(connection);
+            try {
+                int versionActual = obtenerVersion(connection);
+                int aplicadas = 0;
+                for (String script : MIGRACIONES) {
+                    int version = versionDe(script);
+                    if (version > versionActual) {
+                        aplicar(connection, script, version);
+                        aplicadas++;
+                    }
+                }
+                return aplicadas;
+            } finally {
+                desbloquear(connection);
+            }
+        } catch (SQLException | IOException e) {
+            System.err.println("Error al aplicar las migraciones del esquema: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Devuelve la versión de esquema aplicada.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return La mayor versión aplicada, o 0 si no hay ninguna.
+     * @throws SQLException Si falla la consulta.
+     */
+    public static int obtenerVersion(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT MAX(version) FROM version_esquema");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void aplicar(Connection connection, String script, int version) throws SQLException, IOException {
+        System.out.println("Aplicando migración " + script + "...");
+        try (Statement stmt = connection.createStatement()) {
+            for (String sentencia : leerSentencias(script)) {
+                stmt.execute(sentencia);
+            }
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "INSERT INTO version_esquema (version, script) VALUES (?, ?)")) {
+            stmt.setInt(1, version);
+            stmt.setString(2, script);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Lee un script y lo divide en sentencias, quitando los comentarios. Las sentencias terminan en
+     * punto y coma, salvo tras una línea {@code DELIMITER <separador>}, que cambia el separador como en
+     * el cliente de MariaDB (para triggers con {@code BEGIN ... END}). Los separadores y comentarios
+     * dentro de cadenas y nombres entre comillas no cuentan.
+     */
+    static List<String> leerSentencias(String script) throws IOException {
+        String contenido;
+        try (InputStream entrada = MigracionesBD.class.getResourceAsStream(RUTA + script)) {
+            if (entrada == null) {
+                throw new IOException("No se encuentra el script de migración " + script);
+            }
+            contenido = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        return dividirSentencias(contenido);
+    }
+
+    private static List<String> dividirSentencias(String contenido) {
+        List<String> sentencias = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        String separador = ";";
+        int n = contenido.length();
+        int i = 0;
+        while (i < n) {
+            char c = contenido.charAt(i);
+            if (contenido.regionMatches(true, i, "DELIMITER ", 0, 10) && empiezaLinea(contenido, i)
+                    && actual.toString().isBlank()) {
+                int finLinea = finDeLinea(contenido, i);
+                separador = contenido.substring(i + 10, finLinea).strip();
+                actual.setLength(0);
+                i = finLinea;
+            } else if (c == '\'' || c == '"' || c == '`') {
+                int fin = finDeCadena(contenido, i);
+                actual.append(contenido, i, fin);
+                i = fin;
+            } else if (c == '#' || (contenido.startsWith("--", i)
+                    && (i + 2 == n || Character.isWhitespace(contenido.charAt(i + 2))))) {
+                // Como en MariaDB, "--" solo abre un comentario si le sigue un espacio
+                i = finDeLinea(contenido, i);
+            } else if (contenido.startsWith("/*", i)) {
+                int fin = contenido.indexOf("*/", i + 2);
+                i = fin < 0 ? n : fin + 2;
+                actual.append(' ');
+            } else if (contenido.startsWith(separador, i)) {
+                anadirSentencia(sentencias, actual);
+                i += separador.length();
+            } else {
+                actual.append(c);
+                i++;
+            }
+        }
+        anadirSentencia(sentencias, actual);
+        return sentencias;
+    }
+
+    private static void anadirSentencia(List<String> sentencias, StringBuilder actual) {
+        if (!actual.toString().isBlank()) {
+            sentencias.add(actual.toString().strip());
+        }
+        actual.setLength(0);
+    }
+
+    private static boolean empiezaLinea(String contenido, int i) {
+        for (int j = i - 1; j >= 0 && contenido.charAt(j) != '\n'; j--) {
+            if (!Character.isWhitespace(contenido.charAt(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int finDeLinea(String contenido, int i) {
+        int fin = contenido.indexOf('\n', i);
+        return fin < 0 ? contenido.length() : fin;
+    }
+
+    /**
+     * @return La posición siguiente a la comilla que cierra la cadena que empieza en {@code inicio}.
+     */
+    private static int finDeCadena(String contenido, int inicio) {
+        char comilla = contenido.charAt(inicio);
+        int i = inicio + 1;
+        while (i < contenido.length()) {
+            char c = contenido.charAt(i);
+            if (c == '\\' && comilla != '`') {
+                i += 2;
+            } else if (c == comilla) {
+                // Una comilla doble dentro de la cadena la representa a ella misma
+                if (i + 1 < contenido.length() && contenido.charAt(i + 1) == comilla) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return contenido.length();
+    }
+
+    private static int versionDe(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static void bloquear(Connection connection) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            stmt.setString(1, BLOQUEO);
+            stmt.setInt(2, ESPERA_BLOQUEO_SEG);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Otro proceso está aplicando las migraciones");
+                }
+            }
+        }
+    }
+
+    private static void desbloquear(Connection connection) {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            stmt.setString(1, BLOQUEO);
+            stmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Error al liberar el bloqueo de migraciones: " + e.getMessage());
+        }
+    }
+}
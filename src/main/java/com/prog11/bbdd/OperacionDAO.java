@@ -0,0 +1,65 @@
+package com.prog11.bbdd;
+
+/**
+ * Operaciones de los DAO de las que {@link MetricasDAO} guarda latencias, llamadas, errores y filas.
+ */
+public enum OperacionDAO {
+    // VehiculosDAO
+    INSERTAR_VEHICULO("insertarVehiculo"),
+    INSERTAR_VEHICULOS("insertarVehiculos"),
+    ELIMINAR_VEHICULO("eliminarVehiculo"),
+    ACTUALIZAR_PROPIETARIO_VEHICULO("actualizarPropietarioVehiculo"),
+    OBTENER_TODOS_LOS_VEHICULOS("obtenerTodosLosVehiculos"),
+    RECORRER_TODOS_LOS_VEHICULOS("recorrerTodosLosVehiculos"),
+    STREAM_TODOS_LOS_VEHICULOS("streamTodosLosVehiculos"),
+    OBTENER_PAGINA_VEHICULOS("obtenerPaginaVehiculos"),
+    OBTENER_PAGINA_VEHICULOS_POR_MARCA("obtenerPaginaVehiculosPorMarca"),
+    OBTENER_VEHICULOS_POR_MARCA("obtenerVehiculosPorMarca"),
+    OBTENER_VEHICULOS("obtenerVehiculos"),
+    // PropietariosDAO
+    INSERTAR_PROPIETARIO("insertarPropietario"),
+    INSERTAR_PROPIETARIOS("insertarPropietarios"),
+    ELIMINAR_PROPIETARIO("eliminarPropietario"),
+    OBTENER_VEHICULOS_DE_PROPIETARIO("obtenerVehiculosDePropietario"),
+    OBTENER_VEHICULOS_DE_PROPIETARIOS("obtenerVehiculosDePropietarios"),
+    // FuncionalidadesExtrasDAO
+    BUSCAR_VEHICULOS_POR_PRECIO("buscarVehiculosPorPrecio"),
+    ACTUALIZAR_VEHICULO("actualizarVehiculo"),
+    ACTUALIZAR_PRECIOS_POR_MARCA("actualizarPreciosPorMarca"),
+    ACTUALIZAR_PRECIOS_POR_RANGO("actualizarPreciosPorRango"),
+    ACTUALIZAR_PRECIOS("actualizarPrecios"),
+    ACTUALIZAR_KILOMETROS("actualizarKilometros"),
+    AGRUPAR_VEHICULOS_POR_MARCA("agruparVehiculosPorMarca"),
+    OBTENER_RESUMEN_POR_MARCA("obtenerResumenPorMarca"),
+    RECORRER_GRUPOS_POR_MARCA("recorrerGruposPorMarca"),
+    OBTENER_INVENTARIO("obtenerInventario"),
+    OBTENER_PAGINA_INVENTARIO("obtenerPaginaInventario"),
+    RECORRER_INVENTARIO("recorrerInventario"),
+    STREAM_INVENTARIO("streamInventario"),
+    EXPORTAR_INVENTARIO("exportarInventario"),
+    // ExportacionParalela
+    EXPORTAR_INVENTARIO_PARALELO("exportarInventarioParalelo"),
+    EXPORTAR_INVENTARIO_POR_PARTICIONES("exportarInventarioPorParticiones"),
+    // ReconciliadorInventario
+    RECONCILIAR_INVENTARIO("reconciliar"),
+    // PurgaPropietarios
+    PURGAR_PROPIETARIOS_POR_DNI("purgarPorDni"),
+    PURGAR_PROPIETARIOS("purgar"),
+    // CambiosDAO
+    OBTENER_CAMBIOS_VEHICULOS("obtenerCambiosVehiculosDesde"),
+    OBTENER_CAMBIOS_PROPIETARIOS("obtenerCambiosPropietariosDesde"),
+    COMPACTAR_CAMBIOS("compactarCambios");
+
+    private final String metodo;
+
+    OperacionDAO(String metodo) {
+        this.metodo = metodo;
+    }
+
+    /**
+     * @return El nombre del método del DAO.
+     */
+    public String metodo() {
+        return metodo;
+    }
+}
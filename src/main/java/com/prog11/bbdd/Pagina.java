@@ -0,0 +1,24 @@
+package com.prog11.bbdd;
+
+import java.util.List;
+
+/**
+ * Página de resultados de una consulta paginada por clave.
+ *
+ * @param elementos       Los elementos de la página.
+ * @param siguienteCursor La clave del último elemento, que se pasa para pedir la página siguiente,
+ *                        o null si no hay más páginas.
+ * @param <T>             El tipo de los elementos.
+ * @param <C>             El tipo del cursor.
+ */
+public record Pagina<T, C>(List<T> elementos, C siguienteCursor) {
+
+    /**
+     * Indica si hay más elementos después de esta página.
+     *
+     * @return true si existe una página siguiente.
+     */
+    public boolean hayMas() {
+        return siguienteCursor != null;
+    }
+}
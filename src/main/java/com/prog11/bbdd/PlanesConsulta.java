@@ -0,0 +1,100 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Obtiene el plan de ejecución ({@code EXPLAIN}) de las consultas para comprobar
+ * que usan un índice en lugar de recorrer la tabla entera.
+ */
+public class PlanesConsulta {
+
+    // Sentencias de los DAO que filtran por columnas indexadas por las migraciones, con parámetros de ejemplo
+    private static final Map<String, Object[]> CONSULTAS_INDEXADAS = new LinkedHashMap<>();
+
+    static {
+        CONSULTAS_INDEXADAS.put(VehiculosDAO.SQL_VEHICULOS_POR_MARCA, new Object[]{"Ford"});
+        CONSULTAS_INDEXADAS.put(PropietariosDAO.SQL_VEHICULOS_DE_PROPIETARIO, new Object[]{"12345678A"});
+        CONSULTAS_INDEXADAS.put(PropietariosDAO.SQL_ELIMINAR_PROPIETARIO, new Object[]{"12345678A"});
+        CONSULTAS_INDEXADAS.put(FuncionalidadesExtrasDAO.SQL_VEHICULOS_POR_PRECIO, new Object[]{10000f, 10100f});
+    }
+
+    private PlanesConsulta() {
+    }
+
+    /**
+     * Ejecuta {@code EXPLAIN} sobre la consulta con los parámetros indicados.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param sql        La consulta a explicar.
+     * @param parametros Los valores de los parámetros de la consulta.
+     * @return Una línea por cada fila del plan, con el formato {@code columna=valor, ...}.
+     * @throws SQLException Si falla el EXPLAIN.
+     */
+    public static List<String> explicar(Connection connection, String sql, Object... parametros) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                stmt.setObject(i + 1, parametros[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData columnas = rs.getMetaData();
+                while (rs.next()) {
+                    StringBuilder fila = new StringBuilder();
+                    for (int c = 1; c <= columnas.getColumnCount(); c++) {
+                        if (c > 1) {
+                            fila.append(", ");
+                        }
+                        fila.append(columnas.getColumnLabel(c)).append('=').append(rs.getString(c));
+                    }
+                    plan.add(fila.toString());
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Indica si algún paso del plan recorre una tabla entera ({@code type=ALL}).
+     *
+     * @param plan El plan devuelto por {@link #explicar(Connection, String, Object...)}.
+     * @return true si el plan incluye un recorrido completo.
+     */
+    public static boolean usaRecorridoCompleto(List<String> plan) {
+        for (String fila : plan) {
+            if (fila.contains("type=ALL")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Comprueba que las consultas de los DAO que filtran por DNI, marca y precio usan un índice.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return Las consultas cuyo plan recorre una tabla entera (vacía si todas usan índices),
+     * o null en caso de error.
+     */
+    public static List<String> consultasSinIndice(Connection connection) {
+        List<String> sinIndice = new ArrayList<>();
+        try {
+            for (Map.Entry<String, Object[]> consulta : CONSULTAS_INDEXADAS.entrySet()) {
+                if (usaRecorridoCompleto(explicar(connection, consulta.getKey(), consulta.getValue()))) {
+                    sinIndice.add(consulta.getKey());
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al obtener los planes de ejecución: " + e.getMessage());
+            return null;
+        }
+        return sinIndice;
+    }
+}
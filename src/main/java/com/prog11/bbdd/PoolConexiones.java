@@ -0,0 +1,296 @@
+package com.prog11.bbdd;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado de conexiones a la base de datos.
+ * Reutiliza las conexiones físicas entre llamadas para no pagar la conexión TCP
+ * y la autenticación en cada operación. Las conexiones prestadas se devuelven
+ * al pool al llamar a {@link Connection#close()}.
+ */
+public class PoolConexiones implements AutoCloseable {
+    // Datos de acceso a la base de datos
+    private final String url;
+    private final String usuario;
+    private final String password;
+    private final ConfiguracionPool configuracion;
+
+    // Un permiso por cada conexión que se puede prestar a la vez
+    private final Semaphore permisos;
+    // Conexiones libres; la más reciente va al principio para que las antiguas caduquen
+    private final LinkedBlockingDeque<ConexionInactiva> inactivas = new LinkedBlockingDeque<>();
+    private final AtomicInteger activas = new AtomicInteger();
+    private final AtomicInteger fisicas = new AtomicInteger();
+
+    // Estadísticas
+    private final LongAdder prestamos = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder esperaTotalNanos = new LongAdder();
+    private final AtomicLong esperaMaximaNanos = new AtomicLong();
+
+    private final ScheduledExecutorService mantenimiento;
+    private volatile boolean cerrado;
+
+    /**
+     * Conexión física libre junto con el instante en que se devolvió al pool.
+     */
+    private record ConexionInactiva(Connection conexion, long desdeNanos) {
+    }
+
+    /**
+     * Crea un pool de conexiones y arranca la tarea de mantenimiento, que cierra las
+     * conexiones inactivas y mantiene abierto el número mínimo de conexiones.
+     *
+     * @param url           La URL JDBC de la base de datos.
+     * @param usuario       El usuario de la base de datos.
+     * @param password      La contraseña del usuario.
+     * @param configuracion Los parámetros del pool.
+     */
+    public PoolConexiones(String url, String usuario, String password, ConfiguracionPool configuracion) {
+        this.url = url;
+        this.usuario = usuario;
+        this.password = password;
+        this.configuracion = configuracion;
+        this.permisos = new Semaphore(configuracion.tamanoMaximo(), true);
+        this.mantenimiento = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "pool-conexiones-mantenimiento");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long periodo = Math.max(1_000L, configuracion.tiempoMaxInactividadMs() / 2);
+        mantenimiento.scheduleWithFixedDelay(this::mantener, 0, periodo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool. Si no hay conexiones libres y se ha alcanzado el máximo,
+     * espera como mucho el tiempo de adquisición configurado.
+     *
+     * @return Una conexión que vuelve al pool al cerrarla.
+     * @throws SQLException Si el pool está cerrado, se agota la espera o no se puede abrir la conexión.
+     */
+    public Connection prestar() throws SQLException {
+        if (cerrado) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+        long inicio = System.nanoTime();
+        boolean concedido;
+        try {
+            concedido = permisos.tryAcquire(configuracion.timeoutAdquisicionMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión del pool", e);
+        }
+        long espera = System.nanoTime() - inicio;
+        registrarEspera(espera);
+        MetricasDAO.registrarEsperaConexion(espera, concedido);
+        if (!concedido) {
+            timeouts.increment();
+            throw new SQLTimeoutException("No hay conexiones libres tras esperar "
+                    + configuracion.timeoutAdquisicionMs() + " ms");
+        }
+        try {
+            Connection fisica = obtenerConexionFisica();
+            activas.incrementAndGet();
+            prestamos.increment();
+            return envolver(fisica);
+        } catch (SQLException e) {
+            permisos.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return La configuración con la que se creó el pool.
+     */
+    public ConfiguracionPool obtenerConfiguracion() {
+        return configuracion;
+    }
+
+    /**
+     * Devuelve las estadísticas actuales del pool.
+     *
+     * @return Una instantánea de las estadísticas.
+     */
+    public EstadisticasPool obtenerEstadisticas() {
+        return new EstadisticasPool(activas.get(),
+                inactivas.size(),
+                fisicas.get(),
+                prestamos.sum(),
+                timeouts.sum(),
+                esperaTotalNanos.sum(),
+                esperaMaximaNanos.get());
+    }
+
+    /**
+     * Cierra el pool y todas las conexiones libres. Las conexiones prestadas
+     * se cierran cuando se devuelven.
+     */
+    @Override
+    public void close() {
+        cerrado = true;
+        mantenimiento.shutdownNow();
+        ConexionInactiva inactiva;
+        while ((inactiva = inactivas.pollFirst()) != null) {
+            cerrarFisica(inactiva.conexion());
+        }
+    }
+
+    /**
+     * Toma una conexión libre válida o abre una nueva si no hay ninguna.
+     */
+    private Connection obtenerConexionFisica() throws SQLException {
+        ConexionInactiva inactiva;
+        while ((inactiva = inactivas.pollFirst()) != null) {
+            Connection conexion = inactiva.conexion();
+            if (esValida(conexion)) {
+                return conexion;
+            }
+            cerrarFisica(conexion);
+        }
+        return abrirFisica();
+    }
+
+    private boolean esValida(Connection conexion) {
+        try {
+            return conexion.isValid(configuracion.timeoutValidacionSeg());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection abrirFisica() throws SQLException {
+        Connection conexion = DriverManager.getConnection(url, usuario, password);
+        fisicas.incrementAndGet();
+        return conexion;
+    }
+
+    private void cerrarFisica(Connection conexion) {
+        fisicas.decrementAndGet();
+        try {
+            conexion.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar una conexión del pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recibe una conexión devuelta, restablece su estado y la deja disponible.
+     */
+    private void devolver(Connection fisica) {
+        activas.decrementAndGet();
+        try {
+            if (cerrado || !restablecer(fisica)) {
+                cerrarFisica(fisica);
+            } else {
+                inactivas.offerFirst(new ConexionInactiva(fisica, System.nanoTime()));
+            }
+        } finally {
+            permisos.release();
+        }
+    }
+
+    /**
+     * Deshace cualquier transacción pendiente para que el siguiente usuario reciba
+     * la conexión en modo autocommit.
+     *
+     * @return true si la conexión puede reutilizarse.
+     */
+    private boolean restablecer(Connection fisica) {
+        try {
+            if (fisica.isClosed()) {
+                return false;
+            }
+            if (!fisica.getAutoCommit()) {
+                fisica.rollback();
+                fisica.setAutoCommit(true);
+            }
+            if (fisica.isReadOnly()) {
+                fisica.setReadOnly(false);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Tarea periódica: cierra las conexiones que llevan demasiado tiempo inactivas
+     * y abre las necesarias para llegar al mínimo configurado.
+     */
+    private void mantener() {
+        long limite = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(configuracion.tiempoMaxInactividadMs());
+        for (ConexionInactiva inactiva : inactivas) {
+            if (fisicas.get() <= configuracion.tamanoMinimo()) {
+                break;
+            }
+            if (inactiva.desdeNanos() - limite < 0 && inactivas.remove(inactiva)) {
+                cerrarFisica(inactiva.conexion());
+            }
+        }
+        try {
+            while (!cerrado && fisicas.get() < configuracion.tamanoMinimo()) {
+                inactivas.offerLast(new ConexionInactiva(abrirFisica(), System.nanoTime()));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al abrir las conexiones mínimas del pool: " + e.getMessage());
+        }
+    }
+
+    private void registrarEspera(long nanos) {
+        esperaTotalNanos.add(nanos);
+        esperaMaximaNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Envuelve la conexión física para que {@code close()} la devuelva al pool en lugar de cerrarla.
+     */
+    private Connection envolver(Connection fisica) {
+        AtomicBoolean devuelta = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(PoolConexiones.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                        case "close":
+                            if (devuelta.compareAndSet(false, true)) {
+                                devolver(fisica);
+                            }
+                            return null;
+                        case "isClosed":
+                            if (devuelta.get()) {
+                                return true;
+                            }
+                            break;
+                        case "equals":
+                            return proxy == argumentos[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "ConexionPool[" + fisica + "]";
+                        default:
+                            break;
+                    }
+                    if (devuelta.get()) {
+                        throw new SQLException("La conexión ya se ha devuelto al pool");
+                    }
+                    try {
+                        return metodo.invoke(fisica, argumentos);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
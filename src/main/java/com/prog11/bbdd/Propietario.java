@@ -0,0 +1,21 @@
+package com.prog11.bbdd;
+
+/**
+ * Datos de un propietario de la tabla propietarios.
+ *
+ * @param id     El ID del propietario, o 0 si aún no se ha insertado.
+ * @param nombre El nombre del propietario.
+ * @param dni    El DNI del propietario.
+ */
+public record Propietario(int id, String nombre, String dni) {
+
+    /**
+     * Crea un propietario que todavía no tiene ID, por ejemplo para insertarlo.
+     *
+     * @param nombre El nombre del propietario.
+     * @param dni    El DNI del propietario.
+     */
+    public Propietario(String nombre, String dni) {
+        this(0, nombre, dni);
+    }
+}
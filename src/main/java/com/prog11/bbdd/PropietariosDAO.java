@@ -5,7 +5,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * La clase PropietariosDAO proporciona métodos para realizar operaciones CRUD
@@ -13,6 +17,14 @@ import java.util.List;
  */
 public class PropietariosDAO {
 
+    // Sentencias que filtran por DNI; PlanesConsulta comprueba que usan el índice de dni_prop
+    static final String SQL_ELIMINAR_PROPIETARIO = "DELETE FROM propietarios WHERE dni_prop = ?";
+    static final String SQL_VEHICULOS_DE_PROPIETARIO =
+            "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, v.id_prop " +
+            "FROM vehiculos v " +
+            "JOIN propietarios p ON v.id_prop = p.id_prop " +
+            "WHERE p.dni_prop = ?";
+
     /**
      * Inserta un nuevo propietario en la base de datos.
      *
@@ -23,17 +35,71 @@ public class PropietariosDAO {
      */
     public static int insertarPropietario(Connection connection, String nombre, String dni) {
         String sql = "INSERT INTO propietarios (nombre_prop, dni_prop) VALUES (?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, OperacionDAO.INSERTAR_PROPIETARIO)) {
             stmt.setString(1, nombre);
             stmt.setString(2, dni);
             int result = stmt.executeUpdate();
+            CacheVehiculos.invalidarDni(dni);
+            MetricasDAO.registrar(OperacionDAO.INSERTAR_PROPIETARIO, inicio, result);
             return result == 1 ? 0 : -1;
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.INSERTAR_PROPIETARIO, inicio);
             System.err.println("Error al insertar propietario: " + e.getMessage());
             return -1;
         }
     }
 
+    /**
+     * Inserta varios propietarios usando lotes JDBC del tamaño por defecto.
+     *
+     * @param connection   La conexión a la base de datos.
+     * @param propietarios Los propietarios a insertar.
+     * @return Un array con 0 por cada propietario insertado y -1 por cada fallo, o null en caso de error.
+     * @see #insertarPropietarios(Connection, Collection, int)
+     */
+    public static int[] insertarPropietarios(Connection connection, Collection<Propietario> propietarios) {
+        return insertarPropietarios(connection, propietarios, LotesJDBC.TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Inserta varios propietarios enviándolos en lotes con {@code addBatch}/{@code executeBatch}.
+     * En modo autocommit se confirma una transacción por lote.
+     *
+     * @param connection   La conexión a la base de datos.
+     * @param propietarios Los propietarios a insertar.
+     * @param tamanoLote   El número máximo de propietarios por lote.
+     * @return Un array con 0 por cada propietario insertado y -1 por cada fallo, en el orden
+     * de la colección, o null en caso de error.
+     */
+    public static int[] insertarPropietarios(Connection connection,
+                                             Collection<Propietario> propietarios,
+                                             int tamanoLote) {
+        String sql = "INSERT INTO propietarios (nombre_prop, dni_prop) VALUES (?, ?)";
+        List<Propietario> filas = new ArrayList<>(propietarios);
+        long inicio = System.nanoTime();
+        try {
+            int[] resultados = LotesJDBC.ejecutar(connection, sql,
+                    OperacionDAO.INSERTAR_PROPIETARIOS, filas, tamanoLote, (stmt, propietario) -> {
+                stmt.setString(1, propietario.nombre());
+                stmt.setString(2, propietario.dni());
+            });
+            int insertados = 0;
+            for (int i = 0; i < resultados.length; i++) {
+                if (resultados[i] == 0) {
+                    CacheVehiculos.invalidarDni(filas.get(i).dni());
+                    insertados++;
+                }
+            }
+            MetricasDAO.registrar(OperacionDAO.INSERTAR_PROPIETARIOS, inicio, insertados);
+            return resultados;
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.INSERTAR_PROPIETARIOS, inicio);
+            System.err.println("Error al insertar propietarios por lotes: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Elimina un propietario de la base de datos por su DNI.
      *
@@ -42,12 +108,23 @@ public class PropietariosDAO {
      * @return El número de registros eliminados o -1 en caso de error.
      */
     public static int eliminarPropietario(Connection connection, String dni) {
-        String sql = "DELETE FROM propietarios WHERE dni_prop = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        String sql = SQL_ELIMINAR_PROPIETARIO;
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, OperacionDAO.ELIMINAR_PROPIETARIO)) {
+            // Los vehículos se borran en cascada; hace falta el ID para invalidar lo que dependa de ellos
+            List<Integer> ids = CacheVehiculos.estaActiva() || IndiceAutocompletado.estaCargado()
+                    ? buscarIdsPorDni(connection, dni) : List.of();
             stmt.setString(1, dni);
             int result = stmt.executeUpdate();
+            CacheVehiculos.invalidarDni(dni);
+            for (int idProp : ids) {
+                CacheVehiculos.invalidarVehiculosDePropietario(idProp);
+                IndiceAutocompletado.eliminarDePropietario(idProp);
+            }
+            MetricasDAO.registrar(OperacionDAO.ELIMINAR_PROPIETARIO, inicio, result);
             return result; // Devuelve el número de registros eliminados
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.ELIMINAR_PROPIETARIO, inicio);
             System.err.println("Error al eliminar propietario: " + e.getMessage());
             return -1;
         }
@@ -55,33 +132,150 @@ public class PropietariosDAO {
 
     /**
      * Obtiene una lista de vehículos asociados a un propietario, según su DNI.
+     * Si {@link CacheVehiculos} está activa, el resultado se sirve desde la caché
+     * mientras ninguna escritura lo invalide.
      *
      * @param connection La conexión a la base de datos.
      * @param dni        El DNI del propietario.
      * @return Una lista de vehículos del propietario, o null si hubo un error.
      */
-    public static List<String> obtenerVehiculosDePropietario(Connection connection, String dni) {
-        String sql = "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh " +
-                "FROM vehiculos v " +
-                "JOIN propietarios p ON v.id_prop = p.id_prop " +
-                "WHERE p.dni_prop = ?";
-        List<String> vehiculos = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+    public static List<Vehiculo> obtenerVehiculosDePropietario(Connection connection, String dni) {
+        long inicio = System.nanoTime();
+        List<Vehiculo> cacheados = CacheVehiculos.obtenerPorDni(dni);
+        if (cacheados != null) {
+            MetricasDAO.registrar(OperacionDAO.OBTENER_VEHICULOS_DE_PROPIETARIO, inicio, cacheados.size());
+            return cacheados;
+        }
+        long versionCache = CacheVehiculos.version();
+        String sql = SQL_VEHICULOS_DE_PROPIETARIO;
+        List<Vehiculo> vehiculos = new ArrayList<>();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_VEHICULOS_DE_PROPIETARIO)) {
             stmt.setString(1, dni);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String vehiculo = String.format("Matrícula: %s, Marca: %s, Kilómetros: %d, Precio: %.2f",
-                            rs.getString("mat_veh"),
-                            rs.getString("marca_veh"),
-                            rs.getInt("kms_veh"),
-                            rs.getFloat("precio_veh"));
-                    vehiculos.add(vehiculo);
+                    vehiculos.add(Mapeadores.VEHICULO_CON_ID_PROPIETARIO.mapear(rs));
                 }
             }
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_VEHICULOS_DE_PROPIETARIO, inicio);
             System.err.println("Error al obtener vehículos del propietario: " + e.getMessage());
             return null;
         }
+        CacheVehiculos.guardarPorDni(connection, dni, vehiculos, versionCache);
+        MetricasDAO.registrar(OperacionDAO.OBTENER_VEHICULOS_DE_PROPIETARIO, inicio, vehiculos.size());
         return vehiculos;
     }
+
+    /**
+     * Obtiene los vehículos de varios propietarios a la vez, con una consulta por cada
+     * {@value LotesJDBC#TAMANO_LOTE_POR_DEFECTO} DNI en lugar de una por propietario.
+     * Los DNI que ya están en {@link CacheVehiculos} no se consultan, y los consultados
+     * se guardan en ella igual que en {@link #obtenerVehiculosDePropietario(Connection, String)}.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param dnis       Los DNI de los propietarios.
+     * @return Los vehículos de cada DNI, en el orden recibido y sin repetidos; la lista está vacía
+     *         si el propietario no existe o no tiene vehículos. Null si hubo un error.
+     * @throws IllegalArgumentException Si algún DNI es null; no se consulta ninguno.
+     */
+    public static Map<String, List<Vehiculo>> obtenerVehiculosDePropietarios(Connection connection,
+                                                                             Collection<String> dnis) {
+        long inicio = System.nanoTime();
+        Map<String, List<Vehiculo>> resultado = new LinkedHashMap<>();
+        // DNI normalizado -> DNI recibido, de los que no están en caché
+        Map<String, String> pendientes = new LinkedHashMap<>();
+        for (String dni : dnis) {
+            if (dni == null) {
+                throw new IllegalArgumentException("La lista de DNI contiene un DNI null");
+            }
+            if (resultado.containsKey(dni)) {
+                continue;
+            }
+            List<Vehiculo> cacheados = CacheVehiculos.obtenerPorDni(dni);
+            resultado.put(dni, cacheados);
+            if (cacheados == null) {
+                pendientes.putIfAbsent(CacheVehiculos.normalizarDni(dni), dni);
+            }
+        }
+        long versionCache = CacheVehiculos.version();
+        Map<String, List<Vehiculo>> leidos = new HashMap<>(pendientes.size() * 2);
+        List<String> claves = new ArrayList<>(pendientes.keySet());
+        int tamanoTramo = LotesJDBC.TAMANO_LOTE_POR_DEFECTO;
+        try {
+            for (int desde = 0; desde < claves.size(); desde += tamanoTramo) {
+                List<String> tramo = claves.subList(desde, Math.min(desde + tamanoTramo, claves.size()));
+                leerVehiculosDePropietarios(connection, tramo, pendientes, leidos);
+            }
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_VEHICULOS_DE_PROPIETARIOS, inicio);
+            System.err.println("Error al obtener vehículos de los propietarios: " + e.getMessage());
+            return null;
+        }
+        int filas = 0;
+        for (Map.Entry<String, List<Vehiculo>> entrada : resultado.entrySet()) {
+            if (entrada.getValue() == null) {
+                String clave = CacheVehiculos.normalizarDni(entrada.getKey());
+                List<Vehiculo> vehiculos = leidos.getOrDefault(clave, new ArrayList<>());
+                if (pendientes.remove(clave) != null) {
+                    CacheVehiculos.guardarPorDni(connection, entrada.getKey(), vehiculos, versionCache);
+                } else {
+                    // Otra forma de escribir un DNI ya resuelto: recibe su propia lista
+                    vehiculos = new ArrayList<>(vehiculos);
+                }
+                entrada.setValue(vehiculos);
+            }
+            filas += entrada.getValue().size();
+        }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_VEHICULOS_DE_PROPIETARIOS, inicio, filas);
+        return resultado;
+    }
+
+    /**
+     * Lee los vehículos de un tramo de DNI y los añade a {@code leidos}, por DNI normalizado.
+     */
+    private static void leerVehiculosDePropietarios(Connection connection,
+                                                    List<String> claves,
+                                                    Map<String, String> pendientes,
+                                                    Map<String, List<Vehiculo>> leidos) throws SQLException {
+        String sql = "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, v.id_prop, p.dni_prop " +
+                "FROM vehiculos v " +
+                "JOIN propietarios p ON v.id_prop = p.id_prop " +
+                "WHERE p.dni_prop IN (" + LotesJDBC.marcadores(claves.size()) + ")";
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_VEHICULOS_DE_PROPIETARIOS)) {
+            for (int i = 0; i < claves.size(); i++) {
+                stmt.setString(i + 1, pendientes.get(claves.get(i)));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Vehiculo vehiculo = Mapeadores.VEHICULO_CON_ID_PROPIETARIO.mapear(rs);
+                    leidos.computeIfAbsent(CacheVehiculos.normalizarDni(rs.getString(6)), k -> new ArrayList<>())
+                            .add(vehiculo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Busca los IDs de los propietarios con el DNI indicado.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param dni        El DNI a buscar.
+     * @return Los IDs encontrados.
+     * @throws SQLException Si falla la consulta.
+     */
+    static List<Integer> buscarIdsPorDni(Connection connection, String dni) throws SQLException {
+        String sql = "SELECT id_prop FROM propietarios WHERE dni_prop = ?";
+        List<Integer> ids = new ArrayList<>(1);
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setString(1, dni);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        return ids;
+    }
 }
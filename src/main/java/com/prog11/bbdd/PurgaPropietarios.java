@@ -0,0 +1,278 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Elimina propietarios en bloque, junto con sus vehículos, por tramos de tamaño acotado.
+ * <p>
+ * Cada tramo borra primero los vehículos de sus propietarios y después los propietarios, con una
+ * sentencia {@code IN} para cada tabla, en lugar de depender del borrado en cascada. En modo
+ * autocommit cada tramo es una transacción que se confirma antes de pasar al siguiente, así que
+ * los bloqueos sobre vehiculos y propietarios solo duran lo que tarda un tramo, y entre tramos
+ * puede hacerse una pausa para dejar paso al resto de la carga. Dentro de una transacción del
+ * llamante (por ejemplo una {@link UnidadDeTrabajo}) no se confirma nada y los bloqueos se
+ * mantienen hasta que este la termine.
+ * <p>
+ * Tras cada tramo se entregan los totales acumulados a la función de progreso. Si un tramo falla,
+ * solo se deshace ese tramo; los anteriores ya están confirmados y notificados.
+ */
+public class PurgaPropietarios {
+
+    private PurgaPropietarios() {
+    }
+
+    /**
+     * Busca los propietarios de un tramo dentro de su transacción.
+     */
+    @FunctionalInterface
+    private interface BuscadorTramo {
+        /**
+         * @return El DNI de cada propietario del tramo que hay que eliminar, por ID.
+         */
+        Map<Integer, String> buscar() throws SQLException;
+    }
+
+    /**
+     * Elimina los propietarios con los DNI indicados, y sus vehículos, en tramos del tamaño por defecto y sin pausas.
+     *
+     * @see #purgarPorDni(Connection, Collection, int, long, Consumer)
+     */
+    public static ResultadoPurga purgarPorDni(Connection connection, Collection<String> dnis) {
+        return purgarPorDni(connection, dnis, LotesJDBC.TAMANO_LOTE_POR_DEFECTO, 0, null);
+    }
+
+    /**
+     * Elimina los propietarios con los DNI indicados, y sus vehículos, por tramos de DNI.
+     * Los DNI que no existen se cuentan como revisados y se ignoran.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param dnis        Los DNI de los propietarios a eliminar.
+     * @param tamanoTramo El número máximo de DNI por tramo.
+     * @param pausaMs     La pausa entre tramos, en milisegundos (0 para no hacer pausas).
+     * @param progreso    Recibe los totales acumulados tras cada tramo; puede ser null.
+     * @return Los totales de la purga, o null en caso de error o interrupción.
+     */
+    public static ResultadoPurga purgarPorDni(Connection connection,
+                                              Collection<String> dnis,
+                                              int tamanoTramo,
+                                              long pausaMs,
+                                              Consumer<ResultadoPurga> progreso) {
+        comprobarParametros(tamanoTramo, pausaMs);
+        List<String> pendientes = new ArrayList<>(new LinkedHashSet<>(dnis));
+        long inicio = System.nanoTime();
+        try {
+            Purga purga = new Purga(connection, OperacionDAO.PURGAR_PROPIETARIOS_POR_DNI, pausaMs, progreso, inicio);
+            for (int desde = 0; desde < pendientes.size(); desde += tamanoTramo) {
+                List<String> tramo = pendientes.subList(desde, Math.min(desde + tamanoTramo, pendientes.size()));
+                purga.ejecutarTramo(tramo.size(), () -> buscarPorDni(connection, tramo));
+            }
+            ResultadoPurga resultado = purga.resultado();
+            MetricasDAO.registrar(OperacionDAO.PURGAR_PROPIETARIOS_POR_DNI, inicio,
+                    resultado.propietarios() + resultado.vehiculos());
+            return resultado;
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.PURGAR_PROPIETARIOS_POR_DNI, inicio);
+            System.err.println("Error al purgar propietarios por DNI: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Elimina los propietarios que cumplen un criterio, y sus vehículos, en tramos del tamaño por defecto
+     * y sin pausas.
+     *
+     * @see #purgar(Connection, Predicate, int, long, Consumer)
+     */
+    public static ResultadoPurga purgar(Connection connection, Predicate<Propietario> criterio) {
+        return purgar(connection, criterio, LotesJDBC.TAMANO_LOTE_POR_DEFECTO, 0, null);
+    }
+
+    /**
+     * Recorre los propietarios en orden de ID, en páginas de {@code tamanoTramo}, y elimina en un
+     * tramo los de cada página que cumplen el criterio, junto con sus vehículos.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param criterio    Indica si un propietario debe eliminarse.
+     * @param tamanoTramo El número de propietarios revisados por tramo.
+     * @param pausaMs     La pausa tras cada tramo que elimina algo, en milisegundos (0 para no hacer pausas).
+     * @param progreso    Recibe los totales acumulados tras cada tramo; puede ser null.
+     * @return Los totales de la purga, o null en caso de error o interrupción.
+     */
+    public static ResultadoPurga purgar(Connection connection,
+                                        Predicate<Propietario> criterio,
+                                        int tamanoTramo,
+                                        long pausaMs,
+                                        Consumer<ResultadoPurga> progreso) {
+        comprobarParametros(tamanoTramo, pausaMs);
+        String sql = "SELECT id_prop, nombre_prop, dni_prop FROM propietarios WHERE id_prop > ? " +
+                "ORDER BY id_prop LIMIT ?";
+        long inicio = System.nanoTime();
+        try (PreparedStatement pagina = ControlConsultas.preparar(connection, sql, OperacionDAO.PURGAR_PROPIETARIOS)) {
+            Purga purga = new Purga(connection, OperacionDAO.PURGAR_PROPIETARIOS, pausaMs, progreso, inicio);
+            int[] ultimoId = {0};
+            int[] leidos = new int[1];
+            do {
+                purga.ejecutarTramo(0, () -> {
+                    pagina.setInt(1, ultimoId[0]);
+                    pagina.setInt(2, tamanoTramo);
+                    Map<Integer, String> seleccionados = new LinkedHashMap<>();
+                    leidos[0] = 0;
+                    try (ResultSet rs = pagina.executeQuery()) {
+                        while (rs.next()) {
+                            Propietario propietario = new Propietario(rs.getInt(1), rs.getString(2), rs.getString(3));
+                            leidos[0]++;
+                            ultimoId[0] = propietario.id();
+                            if (criterio.test(propietario)) {
+                                seleccionados.put(propietario.id(), propietario.dni());
+                            }
+                        }
+                    }
+                    purga.revisados += leidos[0];
+                    return seleccionados;
+                });
+            } while (leidos[0] == tamanoTramo);
+            ResultadoPurga resultado = purga.resultado();
+            MetricasDAO.registrar(OperacionDAO.PURGAR_PROPIETARIOS, inicio,
+                    resultado.propietarios() + resultado.vehiculos());
+            return resultado;
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.PURGAR_PROPIETARIOS, inicio);
+            System.err.println("Error al purgar propietarios: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void comprobarParametros(int tamanoTramo, long pausaMs) {
+        if (tamanoTramo < 1) {
+            throw new IllegalArgumentException("El tamaño de tramo debe ser positivo: " + tamanoTramo);
+        }
+        if (pausaMs < 0) {
+            throw new IllegalArgumentException("La pausa entre tramos no puede ser negativa: " + pausaMs);
+        }
+    }
+
+    private static Map<Integer, String> buscarPorDni(Connection connection, List<String> dnis) throws SQLException {
+        String sql = "SELECT id_prop, dni_prop FROM propietarios WHERE dni_prop IN (" +
+                LotesJDBC.marcadores(dnis.size()) + ")";
+        Map<Integer, String> propietarios = new LinkedHashMap<>();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.PURGAR_PROPIETARIOS_POR_DNI)) {
+            for (int i = 0; i < dnis.size(); i++) {
+                stmt.setString(i + 1, dnis.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    propietarios.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+        return propietarios;
+    }
+
+    /**
+     * Tramos y contadores de una purga en curso.
+     */
+    private static final class Purga {
+        private final Connection connection;
+        private final OperacionDAO operacion;
+        private final long pausaMs;
+        private final Consumer<ResultadoPurga> progreso;
+        private final long inicio;
+        private int tramos;
+        private long revisados;
+        private int propietarios;
+        private int vehiculos;
+        // true si el último tramo eliminó algo y hay que hacer la pausa antes del siguiente
+        private boolean pausaPendiente;
+
+        Purga(Connection connection, OperacionDAO operacion, long pausaMs, Consumer<ResultadoPurga> progreso,
+              long inicio) {
+            this.connection = connection;
+            this.operacion = operacion;
+            this.pausaMs = pausaMs;
+            this.progreso = progreso;
+            this.inicio = inicio;
+        }
+
+        /**
+         * Busca los propietarios del tramo y los elimina con sus vehículos en una transacción.
+         *
+         * @param revisadosTramo El número de elementos revisados que se suman al terminar el tramo.
+         */
+        void ejecutarTramo(int revisadosTramo, BuscadorTramo buscador) throws SQLException {
+            if (pausaPendiente && pausaMs > 0) {
+                try {
+                    Thread.sleep(pausaMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Purga interrumpida tras " + tramos + " tramos", e);
+                }
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            Map<Integer, String> seleccionados;
+            int vehiculosTramo = 0;
+            int propietariosTramo = 0;
+            try {
+                if (autoCommit) {
+                    connection.setAutoCommit(false);
+                }
+                seleccionados = buscador.buscar();
+                if (!seleccionados.isEmpty()) {
+                    String ids = LotesJDBC.marcadores(seleccionados.size());
+                    vehiculosTramo = borrar("DELETE FROM vehiculos WHERE id_prop IN (" + ids + ")", seleccionados);
+                    propietariosTramo = borrar("DELETE FROM propietarios WHERE id_prop IN (" + ids + ")",
+                            seleccionados);
+                }
+                if (autoCommit) {
+                    connection.commit();
+                }
+            } catch (SQLException e) {
+                if (autoCommit) {
+                    connection.rollback();
+                }
+                throw e;
+            } finally {
+                if (autoCommit) {
+                    connection.setAutoCommit(true);
+                }
+            }
+            if (!seleccionados.isEmpty()) {
+                CacheVehiculos.invalidarTodo();
+                IndiceAutocompletado.eliminarDePropietarios(seleccionados.keySet());
+            }
+            tramos++;
+            revisados += revisadosTramo;
+            vehiculos += vehiculosTramo;
+            propietarios += propietariosTramo;
+            pausaPendiente = !seleccionados.isEmpty();
+            if (progreso != null) {
+                progreso.accept(resultado());
+            }
+        }
+
+        private int borrar(String sql, Map<Integer, String> seleccionados) throws SQLException {
+            try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, operacion)) {
+                int indice = 1;
+                for (int id : seleccionados.keySet()) {
+                    stmt.setInt(indice++, id);
+                }
+                return stmt.executeUpdate();
+            }
+        }
+
+        ResultadoPurga resultado() {
+            return new ResultadoPurga(tramos, revisados, propietarios, vehiculos, System.nanoTime() - inicio);
+        }
+    }
+}
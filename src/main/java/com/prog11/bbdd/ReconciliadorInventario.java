@@ -0,0 +1,222 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Aplica un feed completo del inventario escribiendo solo las diferencias con la tabla vehiculos.
+ * <p>
+ * Primero se lee la tabla guardando una huella de 64 bits de cada fila por matrícula. Después se
+ * recorre el feed: los vehículos sin matrícula conocida se insertan, los que tienen una huella
+ * distinta se actualizan y el resto se salta sin escribir nada. Las escrituras se envían en lotes
+ * con {@code INSERT ... ON DUPLICATE KEY UPDATE}, según se lee el feed. Al final, si se pide, se
+ * borran los vehículos que no aparecen en el feed.
+ * <p>
+ * Las matrículas se comparan como la columna mat_veh, sin distinguir mayúsculas ni espacios
+ * finales, y el precio redondeado al céntimo. Si una matrícula se repite en el feed, prevalece
+ * la última aparición y las siguientes se cuentan como modificaciones.
+ */
+public class ReconciliadorInventario {
+
+    private static final long FNV_BASE = 0xcbf29ce484222325L;
+    private static final long FNV_PRIMO = 0x100000001b3L;
+
+    private ReconciliadorInventario() {
+    }
+
+    /**
+     * Reconcilia la tabla vehiculos con un feed usando lotes del tamaño por defecto.
+     *
+     * @see #reconciliar(Connection, Stream, boolean, int)
+     */
+    public static ResultadoReconciliacion reconciliar(Connection connection, Stream<Vehiculo> feed, boolean eliminarAusentes) {
+        return reconciliar(connection, feed, eliminarAusentes, LotesJDBC.TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Reconcilia la tabla vehiculos con un feed. Los vehículos del feed deben incluir el ID del propietario.
+     * En modo autocommit se confirma cada lote por separado; dentro de una transacción del llamante
+     * (por ejemplo una {@link UnidadDeTrabajo}) la reconciliación se confirma o deshace entera.
+     *
+     * @param connection       La conexión a la base de datos.
+     * @param feed             Los vehículos del feed. El método no cierra el stream.
+     * @param eliminarAusentes true para borrar los vehículos de la tabla que no aparecen en el feed.
+     * @param tamanoLote       El número máximo de escrituras por lote.
+     * @return El número de vehículos leídos, insertados, modificados y eliminados, o null en caso de error.
+     */
+    public static ResultadoReconciliacion reconciliar(Connection connection,
+                                                      Stream<Vehiculo> feed,
+                                                      boolean eliminarAusentes,
+                                                      int tamanoLote) {
+        long inicio = System.nanoTime();
+        try {
+            Map<String, Long> huellas = leerHuellas(connection);
+            // Claves de las matrículas ya leídas del feed
+            Set<String> vistas = new HashSet<>(huellas.size() * 2);
+            Reconciliacion reconciliacion = new Reconciliacion(connection, tamanoLote);
+            for (Iterator<Vehiculo> it = feed.iterator(); it.hasNext(); ) {
+                Vehiculo vehiculo = it.next();
+                reconciliacion.leidos++;
+                String clave = CacheVehiculos.claveMatricula(vehiculo.matricula());
+                boolean repetida = !vistas.add(clave);
+                Long huella = huellas.remove(clave);
+                if (huella == null) {
+                    reconciliacion.escribir(vehiculo, !repetida);
+                } else if (huella != huella(vehiculo.marca(), vehiculo.kms(), vehiculo.precio(), vehiculo.idProp())) {
+                    reconciliacion.escribir(vehiculo, false);
+                } else {
+                    reconciliacion.sinCambios++;
+                }
+            }
+            reconciliacion.vaciar();
+            if (eliminarAusentes && !huellas.isEmpty()) {
+                reconciliacion.eliminar(new ArrayList<>(huellas.keySet()));
+            }
+            CacheVehiculos.invalidarTodo();
+            ResultadoReconciliacion resultado = reconciliacion.resultado(System.nanoTime() - inicio);
+            MetricasDAO.registrar(OperacionDAO.RECONCILIAR_INVENTARIO, inicio,
+                    resultado.insertados() + resultado.modificados() + resultado.eliminados());
+            return resultado;
+        } catch (SQLException e) {
+            CacheVehiculos.invalidarTodo();
+            MetricasDAO.registrarError(OperacionDAO.RECONCILIAR_INVENTARIO, inicio);
+            System.err.println("Error al reconciliar el inventario: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Lee la huella de cada vehículo de la tabla, por clave de matrícula, sin crear objetos {@link Vehiculo}.
+     */
+    private static Map<String, Long> leerHuellas(Connection connection) throws SQLException {
+        String sql = "SELECT mat_veh, marca_veh, kms_veh, precio_veh, id_prop FROM vehiculos";
+        Map<String, Long> huellas = new HashMap<>();
+        try (PreparedStatement stmt = Consultas.prepararLectura(connection, sql, Consultas.TAMANO_FETCH_POR_DEFECTO);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                huellas.put(CacheVehiculos.claveMatricula(rs.getString(1)),
+                        huella(rs.getString(2), rs.getInt(3), rs.getFloat(4), rs.getInt(5)));
+            }
+        }
+        return huellas;
+    }
+
+    /**
+     * Calcula la huella de los datos de un vehículo (FNV-1a con una mezcla final).
+     */
+    static long huella(String marca, int kms, float precio, int idProp) {
+        long h = FNV_BASE;
+        if (marca == null) {
+            h = (h ^ 0x1_0000) * FNV_PRIMO;
+        } else {
+            for (int i = 0; i < marca.length(); i++) {
+                h = (h ^ marca.charAt(i)) * FNV_PRIMO;
+            }
+            h = (h ^ 0x2_0000) * FNV_PRIMO;
+        }
+        h = (h ^ kms) * FNV_PRIMO;
+        h = (h ^ Math.round(precio * 100.0)) * FNV_PRIMO;
+        h = (h ^ idProp) * FNV_PRIMO;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Escrituras pendientes y contadores de una reconciliación en curso.
+     */
+    private static final class Reconciliacion {
+        private final Connection connection;
+        private final int tamanoLote;
+        private final List<Vehiculo> pendientes;
+        private final List<Boolean> nuevos;
+        private long leidos;
+        private int insertados;
+        private int modificados;
+        private long sinCambios;
+        private int eliminados;
+        private int fallidos;
+
+        Reconciliacion(Connection connection, int tamanoLote) {
+            if (tamanoLote < 1) {
+                throw new IllegalArgumentException("El tamaño de lote debe ser positivo: " + tamanoLote);
+            }
+            this.connection = connection;
+            this.tamanoLote = tamanoLote;
+            this.pendientes = new ArrayList<>(tamanoLote);
+            this.nuevos = new ArrayList<>(tamanoLote);
+        }
+
+        void escribir(Vehiculo vehiculo, boolean nuevo) throws SQLException {
+            pendientes.add(vehiculo);
+            nuevos.add(nuevo);
+            if (pendientes.size() == tamanoLote) {
+                vaciar();
+            }
+        }
+
+        void vaciar() throws SQLException {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+            String sql = "INSERT INTO vehiculos (mat_veh, marca_veh, kms_veh, precio_veh, id_prop) " +
+                    "VALUES (?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE marca_veh = VALUES(marca_veh), kms_veh = VALUES(kms_veh), " +
+                    "precio_veh = VALUES(precio_veh), id_prop = VALUES(id_prop)";
+            // Una fila actualizada cuenta 2 y una sin cambios 0; las dos son correctas
+            int[] resultados = LotesJDBC.ejecutar(connection, sql,
+                    OperacionDAO.RECONCILIAR_INVENTARIO, pendientes, tamanoLote, 0, (stmt, vehiculo) -> {
+                stmt.setString(1, vehiculo.matricula());
+                stmt.setString(2, vehiculo.marca());
+                stmt.setInt(3, vehiculo.kms());
+                stmt.setFloat(4, vehiculo.precio());
+                stmt.setInt(5, vehiculo.idProp());
+            });
+            for (int i = 0; i < resultados.length; i++) {
+                if (resultados[i] != 0) {
+                    fallidos++;
+                    continue;
+                }
+                Vehiculo vehiculo = pendientes.get(i);
+                IndiceAutocompletado.anadir(vehiculo.matricula(), vehiculo.marca(), vehiculo.idProp());
+                if (nuevos.get(i)) {
+                    insertados++;
+                } else {
+                    modificados++;
+                }
+            }
+            pendientes.clear();
+            nuevos.clear();
+        }
+
+        void eliminar(List<String> matriculas) throws SQLException {
+            String sql = "DELETE FROM vehiculos WHERE mat_veh = ?";
+            int[] resultados = LotesJDBC.ejecutar(connection, sql,
+                    OperacionDAO.RECONCILIAR_INVENTARIO, matriculas, tamanoLote,
+                    (stmt, matricula) -> stmt.setString(1, matricula));
+            for (int i = 0; i < resultados.length; i++) {
+                if (resultados[i] == 0) {
+                    IndiceAutocompletado.eliminar(matriculas.get(i));
+                    eliminados++;
+                } else {
+                    fallidos++;
+                }
+            }
+        }
+
+        ResultadoReconciliacion resultado(long nanos) {
+            return new ResultadoReconciliacion(leidos, insertados, modificados, sinCambios, eliminados, fallidos, nanos);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pools de conexiones a las réplicas de lectura, usados por {@link ConnectionDB#openReadConnection()}.
+ * <p>
+ * Las conexiones se reparten por turnos entre las réplicas disponibles. Una réplica deja de estar
+ * disponible cuando no se puede abrir una conexión con ella, y vuelve a estarlo cuando la supera una
+ * comprobación periódica. Si ninguna réplica está disponible, {@link #prestar()} devuelve null y
+ * la lectura se hace en la base de datos principal.
+ * <p>
+ * Las conexiones físicas prestadas quedan anotadas para que {@link #esDeReplica(Connection)} distinga
+ * una lectura de réplica de una de la base de datos principal, aunque las dos sean de solo lectura.
+ */
+class ReplicasLectura implements AutoCloseable {
+
+    // Conexiones físicas de las réplicas; las que cierra su pool desaparecen al recogerse
+    private static final Set<Connection> FISICAS =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    /**
+     * Una réplica con su pool y su estado.
+     */
+    private static final class Replica {
+        private final String url;
+        private final PoolConexiones pool;
+        private volatile boolean disponible = true;
+
+        Replica(String url, PoolConexiones pool) {
+            this.url = url;
+            this.pool = pool;
+        }
+    }
+
+    private final List<Replica> replicas;
+    private final int timeoutValidacionSeg;
+    private final AtomicInteger turno = new AtomicInteger();
+    // null si no hay réplicas
+    private final ScheduledExecutorService comprobacion;
+
+    /**
+     * Crea un pool por réplica y arranca la comprobación periódica de su estado.
+     *
+     * @param urls          Las URL JDBC de las réplicas; puede estar vacía.
+     * @param usuario       El usuario de las réplicas.
+     * @param password      La contraseña del usuario.
+     * @param configuracion Los parámetros del pool de cada réplica.
+     * @param periodoMs     El tiempo entre comprobaciones, en milisegundos.
+     */
+    ReplicasLectura(List<String> urls, String usuario, String password, ConfiguracionPool configuracion,
+                    long periodoMs) {
+        this.replicas = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            replicas.add(new Replica(url, new PoolConexiones(url, usuario, password, configuracion)));
+        }
+        this.timeoutValidacionSeg = configuracion.timeoutValidacionSeg();
+        if (replicas.isEmpty()) {
+            this.comprobacion = null;
+        } else {
+            this.comprobacion = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "replicas-comprobacion");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            comprobacion.scheduleWithFixedDelay(this::comprobar, periodoMs, periodoMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Presta una conexión de la siguiente réplica disponible.
+     *
+     * @return La conexión, o null si no hay réplicas o ninguna está disponible.
+     */
+    Connection prestar() {
+        int n = replicas.size();
+        if (n == 0) {
+            return null;
+        }
+        int inicio = Math.floorMod(turno.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Replica replica = replicas.get((inicio + i) % n);
+            if (!replica.disponible) {
+                continue;
+            }
+            try {
+                return anotar(replica.pool.prestar());
+            } catch (SQLTimeoutException e) {
+                // El pool de la réplica está agotado, pero la réplica responde: se prueba con la siguiente
+            } catch (SQLException e) {
+                replica.disponible = false;
+                System.err.println("Réplica no disponible (" + replica.url + "): " + e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indica si una conexión, o la conexión física que envuelve, se prestó desde una réplica.
+     *
+     * @param connection La conexión, tal como la recibe un DAO.
+     * @return true si viene de una réplica, o si no se puede saber.
+     */
+    static boolean esDeReplica(Connection connection) {
+        try {
+            return FISICAS.contains(connection.unwrap(Connection.class));
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static Connection anotar(Connection connection) throws SQLException {
+        try {
+            FISICAS.add(connection.unwrap(Connection.class));
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * @return El estado y las estadísticas del pool de cada réplica.
+     */
+    List<EstadoReplica> obtenerEstado() {
+        List<EstadoReplica> estado = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            estado.add(new EstadoReplica(replica.url, replica.disponible, replica.pool.obtenerEstadisticas()));
+        }
+        return estado;
+    }
+
+    /**
+     * Detiene la comprobación y cierra los pools de las réplicas.
+     */
+    @Override
+    public void close() {
+        if (comprobacion != null) {
+            comprobacion.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    /**
+     * Tarea periódica: valida una conexión de cada réplica y actualiza su estado.
+     */
+    private void comprobar() {
+        for (Replica replica : replicas) {
+            boolean disponible;
+            try (Connection connection = replica.pool.prestar()) {
+                disponible = connection.isValid(timeoutValidacionSeg);
+            } catch (SQLTimeoutException e) {
+                // Todas las conexiones están en uso, así que la réplica responde
+                disponible = true;
+            } catch (SQLException e) {
+                disponible = false;
+            }
+            if (disponible != replica.disponible) {
+                System.err.println("Réplica " + replica.url
+                        + (disponible ? " disponible de nuevo" : " no disponible"));
+                replica.disponible = disponible;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.prog11.bbdd;
+
+import java.nio.file.Path;
+
+/**
+ * Resultado de una exportación del inventario.
+ *
+ * @param archivo La ruta del archivo generado.
+ * @param filas   El número de vehículos exportados.
+ * @param bytes   El número de bytes escritos en disco (ya comprimidos si se usó gzip).
+ * @param nanos   La duración de la exportación, en nanosegundos.
+ */
+public record ResultadoExportacion(Path archivo, long filas, long bytes, long nanos) {
+
+    /**
+     * Calcula el ritmo de la exportación.
+     *
+     * @return Las filas exportadas por segundo.
+     */
+    public double filasPorSegundo() {
+        return nanos == 0 ? 0 : filas * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "Archivo: " + archivo
+                + ", Filas: " + filas
+                + ", Bytes: " + bytes
+                + ", Tiempo (ms): " + nanos / 1_000_000
+                + ", Filas/s: " + Math.round(filasPorSegundo());
+    }
+}
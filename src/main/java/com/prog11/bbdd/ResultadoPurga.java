@@ -0,0 +1,26 @@
+package com.prog11.bbdd;
+
+/**
+ * Totales de una purga de propietarios, al terminar o tras cada tramo confirmado.
+ *
+ * @param tramos       El número de tramos ejecutados.
+ * @param revisados    El número de DNI o de propietarios revisados hasta el momento.
+ * @param propietarios El número de propietarios eliminados.
+ * @param vehiculos    El número de vehículos eliminados con sus propietarios.
+ * @param nanos        El tiempo transcurrido desde el inicio de la purga, en nanosegundos.
+ */
+public record ResultadoPurga(int tramos,
+                             long revisados,
+                             int propietarios,
+                             int vehiculos,
+                             long nanos) {
+
+    @Override
+    public String toString() {
+        return "Tramos: " + tramos
+                + ", Revisados: " + revisados
+                + ", Propietarios eliminados: " + propietarios
+                + ", Vehículos eliminados: " + vehiculos
+                + ", Tiempo (ms): " + nanos / 1_000_000;
+    }
+}
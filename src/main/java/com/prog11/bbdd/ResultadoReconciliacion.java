@@ -0,0 +1,32 @@
+package com.prog11.bbdd;
+
+/**
+ * Resultado de reconciliar el inventario con un feed completo.
+ *
+ * @param leidos      El número de vehículos leídos del feed.
+ * @param insertados  El número de vehículos nuevos insertados.
+ * @param modificados El número de vehículos existentes actualizados.
+ * @param sinCambios  El número de vehículos del feed que no ha hecho falta escribir.
+ * @param eliminados  El número de vehículos borrados por no aparecer en el feed.
+ * @param fallidos    El número de escrituras que han fallado.
+ * @param nanos       La duración de la reconciliación, en nanosegundos.
+ */
+public record ResultadoReconciliacion(long leidos,
+                                      int insertados,
+                                      int modificados,
+                                      long sinCambios,
+                                      int eliminados,
+                                      int fallidos,
+                                      long nanos) {
+
+    @Override
+    public String toString() {
+        return "Leídos: " + leidos
+                + ", Insertados: " + insertados
+                + ", Modificados: " + modificados
+                + ", Eliminados: " + eliminados
+                + ", Sin cambios: " + sinCambios
+                + ", Fallidos: " + fallidos
+                + ", Tiempo (ms): " + nanos / 1_000_000;
+    }
+}
@@ -0,0 +1,31 @@
+package com.prog11.bbdd;
+
+/**
+ * Resumen de los vehículos de una marca calculado en la base de datos.
+ *
+ * @param marca        La marca.
+ * @param numVehiculos El número de vehículos de la marca.
+ * @param precioMinimo El precio más bajo.
+ * @param precioMedio  El precio medio.
+ * @param precioMaximo El precio más alto.
+ * @param kmsMedios    El kilometraje medio.
+ */
+public record ResumenMarca(String marca,
+                           int numVehiculos,
+                           float precioMinimo,
+                           double precioMedio,
+                           float precioMaximo,
+                           double kmsMedios) {
+
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder(128)
+                .append("Marca: ").append(marca)
+                .append(", Vehículos: ").append(numVehiculos)
+                .append(", Precio mínimo: ");
+        FormateadorVehiculo.anadirPrecio(precioMinimo, texto).append(", Precio medio: ");
+        FormateadorVehiculo.anadirPrecio((float) precioMedio, texto).append(", Precio máximo: ");
+        FormateadorVehiculo.anadirPrecio(precioMaximo, texto).append(", Kilómetros medios: ");
+        return texto.append(Math.round(kmsMedios)).toString();
+    }
+}
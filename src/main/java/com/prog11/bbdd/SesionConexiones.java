@@ -0,0 +1,66 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+
+/**
+ * Sesión que presta como mucho una conexión de lectura y una de escritura, y las devuelve al cerrarse.
+ * Se obtiene con {@link ConnectionDB#abrirSesion(boolean)}.
+ * <p>
+ * Las conexiones de {@link #paraLectura()} vienen de las réplicas, que pueden ir retrasadas respecto
+ * a la base de datos principal. Si la sesión se abre con lectura tras escritura, en cuanto se pide
+ * {@link #paraEscritura()} las lecturas siguientes usan esa misma conexión, de modo que la sesión
+ * siempre ve sus propias escrituras.
+ * <p>
+ * Una sesión no debe compartirse entre hilos, igual que las conexiones que presta.
+ */
+public class SesionConexiones implements AutoCloseable {
+    private final boolean leerTrasEscribir;
+    private Connection lectura;
+    private Connection escritura;
+
+    SesionConexiones(boolean leerTrasEscribir) {
+        this.leerTrasEscribir = leerTrasEscribir;
+    }
+
+    /**
+     * @return La conexión para las consultas de la sesión, o null si no se puede obtener.
+     */
+    public Connection paraLectura() {
+        if (leerTrasEscribir && escritura != null) {
+            return escritura;
+        }
+        if (lectura == null) {
+            lectura = ConnectionDB.openReadConnection();
+        }
+        return lectura;
+    }
+
+    /**
+     * @return La conexión a la base de datos principal para las escrituras de la sesión,
+     * o null si no se puede obtener.
+     */
+    public Connection paraEscritura() {
+        if (escritura == null) {
+            escritura = ConnectionDB.openConnection();
+        }
+        return escritura;
+    }
+
+    /**
+     * @return true si las lecturas de la sesión se hacen ya en la base de datos principal.
+     */
+    public boolean leeDeLaPrincipal() {
+        return leerTrasEscribir && escritura != null;
+    }
+
+    /**
+     * Devuelve al pool las conexiones prestadas.
+     */
+    @Override
+    public void close() {
+        ConnectionDB.closeConnection(lectura);
+        ConnectionDB.closeConnection(escritura);
+        lectura = null;
+        escritura = null;
+    }
+}
@@ -0,0 +1,220 @@
+package com.prog11.bbdd;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sesión ligada a una conexión que reutiliza las sentencias preparadas entre llamadas a los DAO.
+ * <p>
+ * La conexión devuelta por {@link #conexion()} se pasa a los métodos de {@link VehiculosDAO},
+ * {@link PropietariosDAO} y {@link FuncionalidadesExtrasDAO} como cualquier otra. Cada sentencia
+ * se prepara la primera vez y, cuando el DAO la cierra, queda guardada en una caché LRU acotada
+ * para la siguiente llamada con el mismo SQL. Con {@code useServerPrepStmts=true}, que la URL por defecto
+ * de {@link ConnectionDB} ya incluye, esto evita además el viaje de ida y vuelta y el análisis del SQL
+ * en el servidor.
+ * <p>
+ * Una sesión no debe compartirse entre hilos, igual que la conexión a la que está ligada.
+ */
+public class SesionDAO implements AutoCloseable {
+    private final Connection conexion;
+    private final Connection proxy;
+    private final Map<List<Object>, SentenciaCacheada> sentencias;
+    private boolean cerrada;
+
+    private long aciertos;
+    private long fallos;
+    private long expulsiones;
+
+    /**
+     * Sentencia guardada en la caché junto con su estado de uso.
+     */
+    private static class SentenciaCacheada {
+        private final PreparedStatement sentencia;
+        // true mientras un DAO la está usando (entre prepareStatement y close)
+        private boolean enUso;
+        // true si se expulsó de la caché mientras estaba en uso
+        private boolean expulsada;
+
+        SentenciaCacheada(PreparedStatement sentencia) {
+            this.sentencia = sentencia;
+        }
+    }
+
+    /**
+     * Crea una sesión sobre la conexión indicada.
+     *
+     * @param conexion      La conexión a la que se liga la sesión.
+     * @param maxSentencias El número máximo de sentencias preparadas que se guardan.
+     */
+    public SesionDAO(Connection conexion, int maxSentencias) {
+        if (maxSentencias < 1) {
+            throw new IllegalArgumentException("El tamaño de la caché de sentencias debe ser positivo");
+        }
+        this.conexion = conexion;
+        this.sentencias = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, SentenciaCacheada> masAntigua) {
+                if (size() > maxSentencias) {
+                    expulsiones++;
+                    expulsar(masAntigua.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.proxy = (Connection) Proxy.newProxyInstance(SesionDAO.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (p, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                        case "prepareStatement":
+                            return preparar(metodo, argumentos);
+                        case "close":
+                            close();
+                            conexion.close();
+                            return null;
+                        case "equals":
+                            return p == argumentos[0];
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        case "toString":
+                            return "SesionDAO[" + conexion + "]";
+                        default:
+                            return invocar(conexion, metodo, argumentos);
+                    }
+                });
+    }
+
+    /**
+     * Devuelve la conexión que se debe pasar a los DAO para reutilizar las sentencias.
+     * Cerrarla cierra también la sesión y la conexión original.
+     *
+     * @return La conexión de la sesión.
+     */
+    public Connection conexion() {
+        return proxy;
+    }
+
+    /**
+     * Devuelve las estadísticas de la caché de sentencias.
+     *
+     * @return Aciertos, fallos, expulsiones y sentencias guardadas.
+     */
+    public EstadisticasCache obtenerEstadisticas() {
+        return new EstadisticasCache(aciertos, fallos, expulsiones, 0, sentencias.size());
+    }
+
+    /**
+     * Cierra todas las sentencias guardadas. La conexión original no se cierra.
+     */
+    @Override
+    public void close() {
+        if (cerrada) {
+            return;
+        }
+        cerrada = true;
+        List<SentenciaCacheada> guardadas = new ArrayList<>(sentencias.values());
+        sentencias.clear();
+        for (SentenciaCacheada guardada : guardadas) {
+            expulsar(guardada);
+        }
+    }
+
+    /**
+     * Devuelve la sentencia guardada para el mismo SQL y las mismas opciones, o prepara una nueva.
+     */
+    private PreparedStatement preparar(Method metodo, Object[] argumentos) throws Throwable {
+        if (cerrada || argumentos[argumentos.length - 1] instanceof Object[]
+                || argumentos[argumentos.length - 1] instanceof int[]) {
+            // Las variantes con nombres o índices de columnas generadas no se guardan
+            return (PreparedStatement) invocar(conexion, metodo, argumentos);
+        }
+        List<Object> clave = Arrays.asList(argumentos);
+        SentenciaCacheada guardada = sentencias.get(clave);
+        if (guardada != null && !guardada.enUso) {
+            aciertos++;
+        } else {
+            fallos++;
+            PreparedStatement nueva = (PreparedStatement) invocar(conexion, metodo, argumentos);
+            if (guardada != null) {
+                // La guardada está en uso (consultas anidadas con el mismo SQL): esta no se guarda
+                return nueva;
+            }
+            guardada = new SentenciaCacheada(nueva);
+            sentencias.put(clave, guardada);
+        }
+        guardada.enUso = true;
+        return envolver(guardada);
+    }
+
+    /**
+     * Envuelve la sentencia para que {@code close()} la deje lista para reutilizarse en lugar de cerrarla.
+     */
+    private PreparedStatement envolver(SentenciaCacheada guardada) {
+        PreparedStatement sentencia = guardada.sentencia;
+        return (PreparedStatement) Proxy.newProxyInstance(SesionDAO.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (p, metodo, argumentos) -> {
+                    switch (metodo.getName()) {
+                        case "close":
+                            liberar(guardada);
+                            return null;
+                        case "getConnection":
+                            return proxy;
+                        case "equals":
+                            return p == argumentos[0];
+                        case "hashCode":
+                            return System.identityHashCode(p);
+                        default:
+                            return invocar(sentencia, metodo, argumentos);
+                    }
+                });
+    }
+
+    private void liberar(SentenciaCacheada guardada) throws SQLException {
+        if (!guardada.enUso) {
+            return;
+        }
+        guardada.enUso = false;
+        if (guardada.expulsada) {
+            guardada.sentencia.close();
+            return;
+        }
+        try {
+            guardada.sentencia.clearParameters();
+            guardada.sentencia.clearBatch();
+        } catch (SQLException e) {
+            // Si no se puede limpiar, se descarta
+            sentencias.values().remove(guardada);
+            guardada.sentencia.close();
+        }
+    }
+
+    private static void expulsar(SentenciaCacheada guardada) {
+        if (guardada.enUso) {
+            guardada.expulsada = true;
+            return;
+        }
+        try {
+            guardada.sentencia.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar una sentencia de la sesión: " + e.getMessage());
+        }
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] argumentos) throws Throwable {
+        try {
+            return metodo.invoke(destino, argumentos);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.prog11.bbdd;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Permite cancelar desde otro hilo las llamadas a los DAO de una petición.
+ * <p>
+ * El token se vincula al hilo que hace las llamadas con {@link #vincular()}. Mientras está vinculado,
+ * cada sentencia de los DAO comprueba el token antes de ejecutarse y queda registrada en él hasta que
+ * se cierra. {@link #cancelar()} marca el token y cancela en el servidor las sentencias en curso; las
+ * siguientes ya no se ejecutan. El método del DAO afectado termina como ante cualquier otro error
+ * (devuelve -1 o null), y {@link #cancelado()} permite distinguir la cancelación.
+ * <pre>{@code
+ * TokenCancelacion token = new TokenCancelacion();
+ * TokenCancelacion.Vinculo vinculo = token.vincular();
+ * try {
+ *     List<Vehiculo> vehiculos = FuncionalidadesExtrasDAO.buscarVehiculosPorPrecio(connection, 0, 50000);
+ * } finally {
+ *     vinculo.close();
+ * }
+ * // Desde otro hilo: token.cancelar();
+ * }</pre>
+ */
+public final class TokenCancelacion {
+    // Estado SQL estándar de una consulta cancelada
+    static final String ESTADO_CANCELADA = "57014";
+
+    private static final ThreadLocal<TokenCancelacion> ACTUAL = new ThreadLocal<>();
+
+    private volatile boolean cancelado;
+    private final Set<Statement> enCurso = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Vinculación de un token a un hilo. Al cerrarla, el hilo vuelve al token que tuviera antes.
+     */
+    public static final class Vinculo implements AutoCloseable {
+        private final TokenCancelacion anterior;
+        private boolean cerrado;
+
+        private Vinculo(TokenCancelacion anterior) {
+            this.anterior = anterior;
+        }
+
+        @Override
+        public void close() {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            if (anterior == null) {
+                ACTUAL.remove();
+            } else {
+                ACTUAL.set(anterior);
+            }
+        }
+    }
+
+    /**
+     * Vincula el token al hilo actual hasta que se cierre el vínculo devuelto.
+     *
+     * @return El vínculo, que debe cerrarse en el mismo hilo.
+     */
+    public Vinculo vincular() {
+        Vinculo vinculo = new Vinculo(ACTUAL.get());
+        ACTUAL.set(this);
+        return vinculo;
+    }
+
+    /**
+     * Cancela el token y las sentencias que estén en curso. Se puede llamar desde cualquier hilo.
+     */
+    public void cancelar() {
+        cancelado = true;
+        for (Statement sentencia : enCurso) {
+            cancelar(sentencia);
+        }
+    }
+
+    /**
+     * @return true si el token se ha cancelado.
+     */
+    public boolean cancelado() {
+        return cancelado;
+    }
+
+    /**
+     * @return El token vinculado al hilo actual, o null si no hay ninguno.
+     */
+    static TokenCancelacion actual() {
+        return ACTUAL.get();
+    }
+
+    /**
+     * @throws SQLException Si el token está cancelado.
+     */
+    void comprobar() throws SQLException {
+        if (cancelado) {
+            throw new SQLException("Operación cancelada", ESTADO_CANCELADA);
+        }
+    }
+
+    /**
+     * Registra una sentencia para cancelarla si se cancela el token.
+     *
+     * @throws SQLException Si el token ya está cancelado.
+     */
+    void registrar(Statement sentencia) throws SQLException {
+        enCurso.add(sentencia);
+        // Comprobar después de registrar evita perder una cancelación concurrente
+        if (cancelado) {
+            enCurso.remove(sentencia);
+            comprobar();
+        }
+    }
+
+    void retirar(Statement sentencia) {
+        enCurso.remove(sentencia);
+    }
+
+    private static void cancelar(Statement sentencia) {
+        try {
+            sentencia.cancel();
+        } catch (SQLException e) {
+            System.err.println("Error al cancelar una sentencia: " + e.getMessage());
+        }
+    }
+}
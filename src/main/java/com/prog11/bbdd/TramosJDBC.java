@@ -0,0 +1,147 @@
+package com.prog11.bbdd;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utilidades para actualizar muchos vehículos con pocas sentencias, en tramos de tamaño acotado.
+ * Cada tramo es una sola sentencia; en modo autocommit se confirma por separado, de modo que
+ * los bloqueos de filas no se mantienen durante toda la actualización. Dentro de una transacción
+ * del llamante se mantienen hasta que este la confirme.
+ */
+class TramosJDBC {
+
+    private TramosJDBC() {
+    }
+
+    /**
+     * Asigna un valor a un parámetro de la sentencia.
+     *
+     * @param <T> El tipo del valor.
+     */
+    @FunctionalInterface
+    interface AsignadorValor<T> {
+        void asignar(PreparedStatement stmt, int indice, T valor) throws SQLException;
+    }
+
+    /**
+     * @return El factor por el que multiplicar un valor para cambiarlo en el porcentaje indicado.
+     * @throws IllegalArgumentException Si el porcentaje no es finito o es -100 o menor, porque dejaría
+     *                                  el valor a cero o negativo.
+     */
+    static BigDecimal factor(double porcentaje) {
+        if (!Double.isFinite(porcentaje) || porcentaje <= -100) {
+            throw new IllegalArgumentException("El porcentaje debe ser mayor que -100: " + porcentaje);
+        }
+        return BigDecimal.ONE.add(BigDecimal.valueOf(porcentaje).movePointLeft(2));
+    }
+
+    /**
+     * Ejecuta {@code UPDATE vehiculos SET asignacion WHERE condicion} por tramos de como mucho
+     * {@code tamanoTramo} matrículas consecutivas. Antes de cada tramo se busca su última matrícula,
+     * y el tramo se actualiza con una condición de rango sobre la clave primaria.
+     */
+    static int actualizarPorTramos(Connection connection,
+                                   String asignacion,
+                                   String condicion,
+                                   int tamanoTramo,
+                                   OperacionDAO operacion,
+                                   Object[] parametrosAsignacion,
+                                   Object[] parametrosCondicion) throws SQLException {
+        if (tamanoTramo < 1) {
+            throw new IllegalArgumentException("El tamaño de tramo debe ser positivo: " + tamanoTramo);
+        }
+        String sqlLimite = "SELECT mat_veh FROM vehiculos WHERE " + condicion + " AND mat_veh > ? " +
+                "ORDER BY mat_veh LIMIT 1 OFFSET ?";
+        String sqlTramo = "UPDATE vehiculos SET " + asignacion + " WHERE " + condicion +
+                " AND mat_veh > ? AND mat_veh <= ?";
+        String sqlUltimo = "UPDATE vehiculos SET " + asignacion + " WHERE " + condicion + " AND mat_veh > ?";
+        int actualizados = 0;
+        String desde = "";
+        try (PreparedStatement limite = ControlConsultas.preparar(connection, sqlLimite, operacion);
+             PreparedStatement tramo = ControlConsultas.preparar(connection, sqlTramo, operacion)) {
+            while (true) {
+                int indice = asignar(limite, 1, parametrosCondicion);
+                limite.setString(indice++, desde);
+                limite.setInt(indice, tamanoTramo - 1);
+                String hasta;
+                try (ResultSet rs = limite.executeQuery()) {
+                    hasta = rs.next() ? rs.getString(1) : null;
+                }
+                if (hasta == null) {
+                    break;
+                }
+                indice = asignar(tramo, 1, parametrosAsignacion);
+                indice = asignar(tramo, indice, parametrosCondicion);
+                tramo.setString(indice++, desde);
+                tramo.setString(indice, hasta);
+                actualizados += tramo.executeUpdate();
+                desde = hasta;
+            }
+        }
+        // Quedan menos de un tramo de filas
+        try (PreparedStatement ultimo = ControlConsultas.preparar(connection, sqlUltimo, operacion)) {
+            int indice = asignar(ultimo, 1, parametrosAsignacion);
+            indice = asignar(ultimo, indice, parametrosCondicion);
+            ultimo.setString(indice, desde);
+            actualizados += ultimo.executeUpdate();
+        }
+        return actualizados;
+    }
+
+    private static int asignar(PreparedStatement stmt, int indice, Object[] parametros) throws SQLException {
+        for (Object parametro : parametros) {
+            stmt.setObject(indice++, parametro);
+        }
+        return indice;
+    }
+
+    /**
+     * Actualiza una columna con un valor distinto por matrícula, con una sentencia
+     * {@code UPDATE ... SET columna = CASE mat_veh WHEN ? THEN ? ... END WHERE mat_veh IN (...)} por tramo.
+     */
+    static <T> int actualizarPorMatricula(Connection connection,
+                                          String columna,
+                                          Map<String, T> valores,
+                                          int tamanoTramo,
+                                          OperacionDAO operacion,
+                                          AsignadorValor<T> asignador) throws SQLException {
+        if (tamanoTramo < 1) {
+            throw new IllegalArgumentException("El tamaño de tramo debe ser positivo: " + tamanoTramo);
+        }
+        List<Map.Entry<String, T>> filas = new ArrayList<>(valores.entrySet());
+        int actualizados = 0;
+        for (int desde = 0; desde < filas.size(); desde += tamanoTramo) {
+            int hasta = Math.min(desde + tamanoTramo, filas.size());
+            int tamano = hasta - desde;
+            StringBuilder sql = new StringBuilder(64 + tamano * 20)
+                    .append("UPDATE vehiculos SET ").append(columna).append(" = CASE mat_veh");
+            for (int i = 0; i < tamano; i++) {
+                sql.append(" WHEN ? THEN ?");
+            }
+            sql.append(" END WHERE mat_veh IN (");
+            for (int i = 0; i < tamano; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+            try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql.toString(), operacion)) {
+                int indice = 1;
+                for (int i = desde; i < hasta; i++) {
+                    stmt.setString(indice++, filas.get(i).getKey());
+                    asignador.asignar(stmt, indice++, filas.get(i).getValue());
+                }
+                for (int i = desde; i < hasta; i++) {
+                    stmt.setString(indice++, filas.get(i).getKey());
+                }
+                actualizados += stmt.executeUpdate();
+            }
+        }
+        return actualizados;
+    }
+}
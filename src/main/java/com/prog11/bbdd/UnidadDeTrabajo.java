@@ -0,0 +1,164 @@
+package com.prog11.bbdd;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Agrupa varias llamadas a los DAO en una sola transacción sobre una conexión.
+ * <p>
+ * Al crearla se desactiva el autocommit y, si se indica, se cambia el nivel de aislamiento.
+ * Las escrituras de los DAO hechas con la conexión solo se confirman con {@link #confirmar()};
+ * si la unidad se cierra sin confirmar, se deshacen. Al cerrarla la conexión vuelve a su
+ * autocommit y nivel de aislamiento originales.
+ * <p>
+ * Los métodos de los DAO no lanzan excepciones sino que devuelven -1 o null, así que el código
+ * de la unidad debe comprobar cada resultado y no confirmar si alguno falla. La forma más cómoda
+ * es {@link #ejecutar(Connection, int, Trabajo)}, que deshace la transacción si el trabajo lanza
+ * una excepción.
+ * <p>
+ * Como las lecturas dentro de la transacción pueden ver filas aún no confirmadas, al confirmar
+ * o deshacer se invalida entera la {@link CacheVehiculos}.
+ */
+public class UnidadDeTrabajo implements AutoCloseable {
+    /**
+     * Nivel de aislamiento que indica que se mantiene el de la conexión.
+     */
+    public static final int AISLAMIENTO_ACTUAL = -1;
+
+    private final Connection connection;
+    private final boolean autoCommitOriginal;
+    private final int aislamientoOriginal;
+    private boolean terminada;
+
+    /**
+     * Trabajo que se ejecuta dentro de una unidad de trabajo.
+     *
+     * @param <T> El tipo del resultado.
+     */
+    @FunctionalInterface
+    public interface Trabajo<T> {
+        /**
+         * @param connection La conexión de la transacción, que se pasa a los DAO.
+         * @return El resultado del trabajo.
+         * @throws SQLException Para deshacer la transacción, por ejemplo si un DAO devuelve -1.
+         */
+        T ejecutar(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Inicia una unidad de trabajo con el nivel de aislamiento actual de la conexión.
+     *
+     * @param connection La conexión a usar.
+     * @throws SQLException Si no se puede desactivar el autocommit.
+     */
+    public UnidadDeTrabajo(Connection connection) throws SQLException {
+        this(connection, AISLAMIENTO_ACTUAL);
+    }
+
+    /**
+     * Inicia una unidad de trabajo.
+     *
+     * @param connection  La conexión a usar.
+     * @param aislamiento El nivel de aislamiento ({@link Connection#TRANSACTION_READ_COMMITTED}, etc.),
+     *                    o {@link #AISLAMIENTO_ACTUAL} para mantener el de la conexión.
+     * @throws SQLException Si no se puede cambiar el aislamiento o desactivar el autocommit.
+     */
+    public UnidadDeTrabajo(Connection connection, int aislamiento) throws SQLException {
+        this.connection = connection;
+        this.autoCommitOriginal = connection.getAutoCommit();
+        this.aislamientoOriginal = connection.getTransactionIsolation();
+        if (!autoCommitOriginal) {
+            throw new SQLException("La conexión ya tiene una transacción en curso");
+        }
+        try {
+            if (aislamiento != AISLAMIENTO_ACTUAL && aislamiento != aislamientoOriginal) {
+                connection.setTransactionIsolation(aislamiento);
+            }
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            terminada = true;
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Ejecuta un trabajo en una transacción con el nivel de aislamiento indicado. Si el trabajo
+     * termina sin excepciones la transacción se confirma; si lanza una, se deshace.
+     *
+     * @param connection  La conexión a usar.
+     * @param aislamiento El nivel de aislamiento, o {@link #AISLAMIENTO_ACTUAL}.
+     * @param trabajo     El trabajo a ejecutar.
+     * @param <T>         El tipo del resultado.
+     * @return El resultado del trabajo, o null si la transacción se deshizo por un error.
+     */
+    public static <T> T ejecutar(Connection connection, int aislamiento, Trabajo<T> trabajo) {
+        try (UnidadDeTrabajo unidad = new UnidadDeTrabajo(connection, aislamiento)) {
+            T resultado = trabajo.ejecutar(connection);
+            unidad.confirmar();
+            return resultado;
+        } catch (SQLException e) {
+            System.err.println("Error en la transacción, se deshacen los cambios: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return La conexión de la transacción, que se pasa a los DAO.
+     */
+    public Connection conexion() {
+        return connection;
+    }
+
+    /**
+     * Confirma la transacción.
+     *
+     * @throws SQLException Si falla la confirmación; en ese caso la transacción se deshace al cerrar.
+     */
+    public void confirmar() throws SQLException {
+        if (terminada) {
+            throw new SQLException("La unidad de trabajo ya está terminada");
+        }
+        connection.commit();
+        terminada = true;
+        CacheVehiculos.invalidarTodo();
+    }
+
+    /**
+     * Deshace la transacción.
+     *
+     * @throws SQLException Si falla el rollback.
+     */
+    public void deshacer() throws SQLException {
+        if (terminada) {
+            return;
+        }
+        terminada = true;
+        try {
+            connection.rollback();
+        } finally {
+            CacheVehiculos.invalidarTodo();
+            IndiceAutocompletado.marcarDesactualizado();
+        }
+    }
+
+    /**
+     * Deshace la transacción si no se ha confirmado y restaura el autocommit y el aislamiento de la conexión.
+     */
+    @Override
+    public void close() {
+        try {
+            deshacer();
+        } catch (SQLException e) {
+            System.err.println("Error al deshacer la transacción: " + e.getMessage());
+        }
+        try {
+            connection.setAutoCommit(autoCommitOriginal);
+            if (connection.getTransactionIsolation() != aislamientoOriginal) {
+                connection.setTransactionIsolation(aislamientoOriginal);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error al restaurar la conexión tras la transacción: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.prog11.bbdd;
+
+/**
+ * Datos de un vehículo de la tabla vehiculos.
+ *
+ * @param matricula         La matrícula del vehículo.
+ * @param marca             La marca del vehículo.
+ * @param kms               El número de kilómetros del vehículo.
+ * @param precio            El precio del vehículo.
+ * @param idProp            El ID del propietario del vehículo, o 0 si no se conoce.
+ * @param nombrePropietario El nombre del propietario, o null si la consulta no lo incluye.
+ */
+public record Vehiculo(String matricula,
+                       String marca,
+                       int kms,
+                       float precio,
+                       int idProp,
+                       String nombrePropietario) {
+
+    /**
+     * Crea un vehículo sin el nombre del propietario, por ejemplo para insertarlo.
+     *
+     * @param matricula La matrícula del vehículo.
+     * @param marca     La marca del vehículo.
+     * @param kms       El número de kilómetros del vehículo.
+     * @param precio    El precio del vehículo.
+     * @param idProp    El ID del propietario del vehículo.
+     */
+    public Vehiculo(String matricula, String marca, int kms, float precio, int idProp) {
+        this(matricula, marca, kms, precio, idProp, null);
+    }
+
+    /**
+     * Devuelve el texto del vehículo generado por {@link FormateadorVehiculo}.
+     *
+     * @return El texto del vehículo.
+     */
+    @Override
+    public String toString() {
+        return FormateadorVehiculo.formatear(this);
+    }
+}
@@ -5,7 +5,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * La clase VehiculosDAO proporciona métodos para realizar operaciones CRUD
@@ -13,6 +16,13 @@ import java.util.List;
  */
 public class VehiculosDAO {
 
+    // Consulta de obtenerVehiculosPorMarca; PlanesConsulta comprueba que usa un índice
+    static final String SQL_VEHICULOS_POR_MARCA =
+            "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, v.id_prop, p.nombre_prop " +
+            "FROM vehiculos v " +
+            "JOIN propietarios p ON v.id_prop = p.id_prop " +
+            "WHERE v.marca_veh = ?";
+
     /**
      * Inserta un nuevo vehículo en la base de datos.
      *
@@ -31,20 +41,84 @@ public class VehiculosDAO {
                                        float precio,
                                        int idProp) {
         String sql = "INSERT INTO vehiculos (mat_veh, marca_veh, kms_veh, precio_veh, id_prop) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, OperacionDAO.INSERTAR_VEHICULO)) {
             stmt.setString(1, matricula);
             stmt.setString(2, marca);
             stmt.setInt(3, kms);
             stmt.setFloat(4, precio);
             stmt.setInt(5, idProp);
             int result = stmt.executeUpdate();
+            CacheVehiculos.invalidarMarca(marca);
+            CacheVehiculos.invalidarPropietario(idProp);
+            if (result == 1) {
+                IndiceAutocompletado.anadir(matricula, marca, idProp);
+            }
+            MetricasDAO.registrar(OperacionDAO.INSERTAR_VEHICULO, inicio, result);
             return result == 1 ? 0 : -1;
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.INSERTAR_VEHICULO, inicio);
             System.err.println("Error al insertar vehículo: " + e.getMessage());
             return -1;
         }
     }
 
+    /**
+     * Inserta varios vehículos usando lotes JDBC del tamaño por defecto.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param vehiculos  Los vehículos a insertar.
+     * @return Un array con 0 por cada vehículo insertado y -1 por cada fallo, o null en caso de error.
+     * @see #insertarVehiculos(Connection, Collection, int)
+     */
+    public static int[] insertarVehiculos(Connection connection, Collection<Vehiculo> vehiculos) {
+        return insertarVehiculos(connection, vehiculos, LotesJDBC.TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Inserta varios vehículos enviándolos en lotes con {@code addBatch}/{@code executeBatch}.
+     * En modo autocommit se confirma una transacción por lote. Con el driver de MariaDB
+     * las inserciones de cada lote se envían juntas si la URL mantiene
+     * {@code useBulkStmtsForInserts=true}.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param vehiculos  Los vehículos a insertar.
+     * @param tamanoLote El número máximo de vehículos por lote.
+     * @return Un array con 0 por cada vehículo insertado y -1 por cada fallo, en el orden
+     * de la colección, o null en caso de error.
+     */
+    public static int[] insertarVehiculos(Connection connection, Collection<Vehiculo> vehiculos, int tamanoLote) {
+        String sql = "INSERT INTO vehiculos (mat_veh, marca_veh, kms_veh, precio_veh, id_prop) VALUES (?, ?, ?, ?, ?)";
+        List<Vehiculo> filas = new ArrayList<>(vehiculos);
+        long inicio = System.nanoTime();
+        try {
+            int[] resultados = LotesJDBC.ejecutar(connection, sql,
+                    OperacionDAO.INSERTAR_VEHICULOS, filas, tamanoLote, (stmt, vehiculo) -> {
+                stmt.setString(1, vehiculo.matricula());
+                stmt.setString(2, vehiculo.marca());
+                stmt.setInt(3, vehiculo.kms());
+                stmt.setFloat(4, vehiculo.precio());
+                stmt.setInt(5, vehiculo.idProp());
+            });
+            int insertados = 0;
+            for (int i = 0; i < resultados.length; i++) {
+                if (resultados[i] == 0) {
+                    CacheVehiculos.invalidarMarca(filas.get(i).marca());
+                    CacheVehiculos.invalidarPropietario(filas.get(i).idProp());
+                    Vehiculo vehiculo = filas.get(i);
+                    IndiceAutocompletado.anadir(vehiculo.matricula(), vehiculo.marca(), vehiculo.idProp());
+                    insertados++;
+                }
+            }
+            MetricasDAO.registrar(OperacionDAO.INSERTAR_VEHICULOS, inicio, insertados);
+            return resultados;
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.INSERTAR_VEHICULOS, inicio);
+            System.err.println("Error al insertar vehículos por lotes: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Elimina un vehículo de la base de datos por su matrícula.
      *
@@ -54,11 +128,16 @@ public class VehiculosDAO {
      */
     public static int eliminarVehiculo(Connection connection, String matricula) {
         String sql = "DELETE FROM vehiculos WHERE mat_veh = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, OperacionDAO.ELIMINAR_VEHICULO)) {
             stmt.setString(1, matricula);
             int result = stmt.executeUpdate();
+            CacheVehiculos.invalidarMatricula(matricula);
+            IndiceAutocompletado.eliminar(matricula);
+            MetricasDAO.registrar(OperacionDAO.ELIMINAR_VEHICULO, inicio, result);
             return result == 1 ? 0 : -1;
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.ELIMINAR_VEHICULO, inicio);
             System.err.println("Error al eliminar vehículo: " + e.getMessage());
             return -1;
         }
@@ -76,12 +155,19 @@ public class VehiculosDAO {
                                                     String matricula,
                                                     int idProp) {
         String sql = "UPDATE vehiculos SET id_prop = ? WHERE mat_veh = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.ACTUALIZAR_PROPIETARIO_VEHICULO)) {
             stmt.setInt(1, idProp);
             stmt.setString(2, matricula);
             int result = stmt.executeUpdate();
+            CacheVehiculos.invalidarMatricula(matricula);
+            CacheVehiculos.invalidarPropietario(idProp);
+            IndiceAutocompletado.cambiarPropietario(matricula, idProp);
+            MetricasDAO.registrar(OperacionDAO.ACTUALIZAR_PROPIETARIO_VEHICULO, inicio, result);
             return result == 1 ? 0 : -1;
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.ACTUALIZAR_PROPIETARIO_VEHICULO, inicio);
             System.err.println("Error al actualizar propietario del vehículo: " + e.getMessage());
             return -1;
         }
@@ -91,65 +177,223 @@ public class VehiculosDAO {
      * Obtiene todos los vehículos de la base de datos junto con el nombre del propietario.
      *
      * @param connection La conexión a la base de datos.
-     * @return Una lista de cadenas con información sobre cada vehículo, o null en caso de error.
+     * @return Una lista de vehículos con el nombre de su propietario, o null en caso de error.
      */
-    public static List<String> obtenerTodosLosVehiculos(Connection connection) {
+    public static List<Vehiculo> obtenerTodosLosVehiculos(Connection connection) {
         String sql = "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, p.nombre_prop " +
                 "FROM vehiculos v " +
                 "JOIN propietarios p ON v.id_prop = p.id_prop";
-        List<String> vehiculos = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        List<Vehiculo> vehiculos = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_TODOS_LOS_VEHICULOS)) {
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String vehiculo = String.format(
-                            "Matrícula: %s, Marca: %s, Kilómetros: %d, Precio: %.2f, Propietario: %s",
-                            rs.getString("mat_veh"),
-                            rs.getString("marca_veh"),
-                            rs.getInt("kms_veh"),
-                            rs.getFloat("precio_veh"),
-                            rs.getString("nombre_prop"));
-                    vehiculos.add(vehiculo);
+                    vehiculos.add(Mapeadores.VEHICULO_CON_PROPIETARIO.mapear(rs));
                 }
             }
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_TODOS_LOS_VEHICULOS, inicio);
             System.err.println("Error al obtener todos los vehículos: " + e.getMessage());
             return null;
         }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_TODOS_LOS_VEHICULOS, inicio, vehiculos.size());
         return vehiculos;
     }
 
     /**
-     * Obtiene los vehículos por marca.
+     * Recorre todos los vehículos junto con el nombre del propietario, entregando cada uno
+     * a la acción indicada a medida que se lee, sin cargar la tabla entera en memoria.
      *
      * @param connection La conexión a la base de datos.
-     * @param marca      La marca de los vehículos a buscar.
-     * @return Una lista de cadenas con información sobre vehículos de esa marca,
-     * o null si ocurre un error.
+     * @param accion     La acción que recibe cada vehículo.
+     * @return El número de vehículos recorridos, o -1 en caso de error.
      */
-    public static List<String> obtenerVehiculosPorMarca(Connection connection, String marca) {
-        String sql = "SELECT v.mat_veh, v.marca_veh, kms_veh, precio_veh, p.nombre_prop " +
+    public static long recorrerTodosLosVehiculos(Connection connection, Consumer<Vehiculo> accion) {
+        String sql = "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, p.nombre_prop " +
+                "FROM vehiculos v " +
+                "JOIN propietarios p ON v.id_prop = p.id_prop";
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = Consultas.prepararLectura(connection, sql, Consultas.TAMANO_FETCH_POR_DEFECTO,
+                OperacionDAO.RECORRER_TODOS_LOS_VEHICULOS)) {
+            long filas = Consultas.recorrer(stmt, Mapeadores.VEHICULO_CON_PROPIETARIO, accion);
+            MetricasDAO.registrar(OperacionDAO.RECORRER_TODOS_LOS_VEHICULOS, inicio, filas);
+            return filas;
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.RECORRER_TODOS_LOS_VEHICULOS, inicio);
+            System.err.println("Error al recorrer todos los vehículos: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Obtiene todos los vehículos junto con el nombre del propietario como un stream que
+     * lee las filas bajo demanda con el tamaño de fetch por defecto.
+     *
+     * @param connection La conexión a la base de datos.
+     * @return Un stream de vehículos que debe cerrarse tras usarlo, o null en caso de error.
+     * @see #streamTodosLosVehiculos(Connection, int)
+     */
+    public static Stream<Vehiculo> streamTodosLosVehiculos(Connection connection) {
+        return streamTodosLosVehiculos(connection, Consultas.TAMANO_FETCH_POR_DEFECTO);
+    }
+
+    /**
+     * Obtiene todos los vehículos junto con el nombre del propietario como un stream que
+     * lee las filas bajo demanda. El stream debe cerrarse (por ejemplo con try-with-resources)
+     * para liberar la sentencia; mientras esté abierto la conexión no debe usarse para otras consultas.
+     *
+     * @param connection  La conexión a la base de datos.
+     * @param tamanoFetch El número de filas que el driver lee en cada bloque.
+     * @return Un stream de vehículos, o null en caso de error.
+     */
+    public static Stream<Vehiculo> streamTodosLosVehiculos(Connection connection, int tamanoFetch) {
+        String sql = "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, p.nombre_prop " +
+                "FROM vehiculos v " +
+                "JOIN propietarios p ON v.id_prop = p.id_prop";
+        long inicio = System.nanoTime();
+        try {
+            PreparedStatement stmt = Consultas.prepararLectura(connection, sql, tamanoFetch,
+                    OperacionDAO.STREAM_TODOS_LOS_VEHICULOS);
+            return Consultas.stream(stmt, Mapeadores.VEHICULO_CON_PROPIETARIO,
+                    OperacionDAO.STREAM_TODOS_LOS_VEHICULOS, inicio);
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.STREAM_TODOS_LOS_VEHICULOS, inicio);
+            System.err.println("Error al obtener el stream de vehículos: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene una página de vehículos, con el nombre del propietario, ordenados por matrícula.
+     * La página empieza justo después de la última matrícula recibida, por lo que el coste
+     * no crece al avanzar páginas como ocurre con {@code OFFSET}.
+     *
+     * @param connection      La conexión a la base de datos.
+     * @param ultimaMatricula La matrícula devuelta como cursor por la página anterior, o null para la primera.
+     * @param tamano          El número máximo de vehículos de la página.
+     * @return La página de vehículos con el cursor de la siguiente, o null en caso de error.
+     */
+    public static Pagina<Vehiculo, String> obtenerPaginaVehiculos(Connection connection,
+                                                                  String ultimaMatricula,
+                                                                  int tamano) {
+        if (tamano < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo: " + tamano);
+        }
+        String sql = "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, p.nombre_prop " +
                 "FROM vehiculos v " +
                 "JOIN propietarios p ON v.id_prop = p.id_prop " +
-                "WHERE v.marca_veh = ?";
-        List<String> vehiculos = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                "WHERE v.mat_veh > ? " +
+                "ORDER BY v.mat_veh " +
+                "LIMIT ?";
+        List<Vehiculo> vehiculos = new ArrayList<>(tamano + 1);
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_PAGINA_VEHICULOS)) {
+            stmt.setString(1, ultimaMatricula == null ? "" : ultimaMatricula);
+            // Se pide un vehículo más para saber si existe una página siguiente
+            stmt.setInt(2, tamano + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    vehiculos.add(Mapeadores.VEHICULO_CON_PROPIETARIO.mapear(rs));
+                }
+            }
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_PAGINA_VEHICULOS, inicio);
+            System.err.println("Error al obtener la página de vehículos: " + e.getMessage());
+            return null;
+        }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_PAGINA_VEHICULOS, inicio, vehiculos.size());
+        if (vehiculos.size() <= tamano) {
+            return new Pagina<>(vehiculos, null);
+        }
+        vehiculos.remove(tamano);
+        return new Pagina<>(vehiculos, vehiculos.get(tamano - 1).matricula());
+    }
+
+    /**
+     * Obtiene una página de vehículos, con el nombre del propietario, ordenados por marca y matrícula.
+     * La página empieza justo después del par (marca, matrícula) del cursor. Los vehículos sin
+     * marca no aparecen en este listado.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param ultimo     El cursor devuelto por la página anterior, o null para la primera.
+     * @param tamano     El número máximo de vehículos de la página.
+     * @return La página de vehículos con el cursor de la siguiente, o null en caso de error.
+     */
+    public static Pagina<Vehiculo, CursorMarca> obtenerPaginaVehiculosPorMarca(Connection connection,
+                                                                               CursorMarca ultimo,
+                                                                               int tamano) {
+        if (tamano < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo: " + tamano);
+        }
+        String sql = "SELECT v.mat_veh, v.marca_veh, v.kms_veh, v.precio_veh, p.nombre_prop " +
+                "FROM vehiculos v " +
+                "JOIN propietarios p ON v.id_prop = p.id_prop " +
+                "WHERE v.marca_veh > ? OR (v.marca_veh = ? AND v.mat_veh > ?) " +
+                "ORDER BY v.marca_veh, v.mat_veh " +
+                "LIMIT ?";
+        CursorMarca cursor = ultimo == null ? new CursorMarca("", "") : ultimo;
+        List<Vehiculo> vehiculos = new ArrayList<>(tamano + 1);
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_PAGINA_VEHICULOS_POR_MARCA)) {
+            stmt.setString(1, cursor.marca());
+            stmt.setString(2, cursor.marca());
+            stmt.setString(3, cursor.matricula());
+            stmt.setInt(4, tamano + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    vehiculos.add(Mapeadores.VEHICULO_CON_PROPIETARIO.mapear(rs));
+                }
+            }
+        } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_PAGINA_VEHICULOS_POR_MARCA, inicio);
+            System.err.println("Error al obtener la página de vehículos por marca: " + e.getMessage());
+            return null;
+        }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_PAGINA_VEHICULOS_POR_MARCA, inicio, vehiculos.size());
+        if (vehiculos.size() <= tamano) {
+            return new Pagina<>(vehiculos, null);
+        }
+        vehiculos.remove(tamano);
+        return new Pagina<>(vehiculos, CursorMarca.de(vehiculos.get(tamano - 1)));
+    }
+
+    /**
+     * Obtiene los vehículos por marca. Si {@link CacheVehiculos} está activa, el resultado
+     * se sirve desde la caché mientras ninguna escritura lo invalide.
+     *
+     * @param connection La conexión a la base de datos.
+     * @param marca      La marca de los vehículos a buscar.
+     * @return Una lista de vehículos de esa marca con el nombre de su propietario,
+     * o null si ocurre un error.
+     */
+    public static List<Vehiculo> obtenerVehiculosPorMarca(Connection connection, String marca) {
+        long inicio = System.nanoTime();
+        List<Vehiculo> cacheados = CacheVehiculos.obtenerPorMarca(marca);
+        if (cacheados != null) {
+            MetricasDAO.registrar(OperacionDAO.OBTENER_VEHICULOS_POR_MARCA, inicio, cacheados.size());
+            return cacheados;
+        }
+        long versionCache = CacheVehiculos.version();
+        String sql = SQL_VEHICULOS_POR_MARCA;
+        List<Vehiculo> vehiculos = new ArrayList<>();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql,
+                OperacionDAO.OBTENER_VEHICULOS_POR_MARCA)) {
             stmt.setString(1, marca);
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String vehiculo = String.format(
-                            "Matrícula: %s, Marca: %s, Kilómetros: %d, Precio: %.2f, Propietario: %s",
-                            rs.getString("mat_veh"),
-                            rs.getString("marca_veh"),
-                            rs.getInt("kms_veh"),
-                            rs.getFloat("precio_veh"),
-                            rs.getString("nombre_prop"));
-                    vehiculos.add(vehiculo);
+                    vehiculos.add(Mapeadores.VEHICULO_COMPLETO.mapear(rs));
                 }
             }
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_VEHICULOS_POR_MARCA, inicio);
             System.err.println("Error al obtener vehículos por marca: " + e.getMessage());
             return null;
         }
+        CacheVehiculos.guardarPorMarca(connection, marca, vehiculos, versionCache);
+        MetricasDAO.registrar(OperacionDAO.OBTENER_VEHICULOS_POR_MARCA, inicio, vehiculos.size());
         return vehiculos;
     }
 
@@ -157,27 +401,24 @@ public class VehiculosDAO {
      * Obtiene una lista de vehículos con información básica como matrícula, marca, kms y precio.
      *
      * @param connection La conexión a la base de datos.
-     * @return Una lista de cadenas con detalles de vehículos, o null si hay un error.
+     * @return Una lista de vehículos, o null si hay un error.
      */
-    public static List<String> obtenerVehiculos(Connection connection) {
+    public static List<Vehiculo> obtenerVehiculos(Connection connection) {
         String sql = "SELECT v.mat_veh, v.marca_veh, kms_veh, precio_veh FROM vehiculos v";
-        List<String> vehiculos = new ArrayList<>();
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        List<Vehiculo> vehiculos = new ArrayList<>();
+        long inicio = System.nanoTime();
+        try (PreparedStatement stmt = ControlConsultas.preparar(connection, sql, OperacionDAO.OBTENER_VEHICULOS)) {
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    String vehiculo = String.format(
-                            "Matrícula: %s, Marca: %s, Kilómetros: %d, Precio: %.2f",
-                            rs.getString("mat_veh"),
-                            rs.getString("marca_veh"),
-                            rs.getInt("kms_veh"),
-                            rs.getFloat("precio_veh"));
-                    vehiculos.add(vehiculo);
+                    vehiculos.add(Mapeadores.VEHICULO.mapear(rs));
                 }
             }
         } catch (SQLException e) {
+            MetricasDAO.registrarError(OperacionDAO.OBTENER_VEHICULOS, inicio);
             System.err.println("Error al obtener vehículos: " + e.getMessage());
             return null;
         }
+        MetricasDAO.registrar(OperacionDAO.OBTENER_VEHICULOS, inicio, vehiculos.size());
         return vehiculos;
     }
 }
@@ -0,0 +1,64 @@
+package com.prog11.princ;
+
+import com.prog11.bbdd.ConnectionDB;
+import com.prog11.bbdd.ExportacionParalela;
+import com.prog11.bbdd.FormatoExportacion;
+import com.prog11.bbdd.FuncionalidadesExtrasDAO;
+import com.prog11.bbdd.ResultadoExportacion;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.util.Locale;
+
+/**
+ * Exporta el inventario de vehículos sin interacción con el usuario,
+ * pensado para ejecutarse desde tareas programadas (cron).
+ * Uso: {@code Prog11_Exportacion <archivo> [texto|csv|jsonl] [gzip] [particiones]}.
+ */
+public class Prog11_Exportacion {
+
+    /**
+     * Método principal de la exportación.
+     *
+     * @param args Ruta del archivo, formato opcional (csv por defecto), "gzip" para comprimir y
+     *             el número de particiones a leer en paralelo (1 por defecto).
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Uso: Prog11_Exportacion <archivo> [texto|csv|jsonl] [gzip] [particiones]");
+            System.exit(2);
+        }
+        Path destino = Path.of(args[0]);
+        FormatoExportacion formato = args.length > 1
+                ? FormatoExportacion.valueOf(args[1].toUpperCase(Locale.ROOT))
+                : FormatoExportacion.CSV;
+        boolean gzip = false;
+        int particiones = 1;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("gzip")) {
+                gzip = true;
+            } else {
+                particiones = Integer.parseInt(args[i]);
+            }
+        }
+
+        ResultadoExportacion resultado;
+        if (particiones > 1) {
+            resultado = ExportacionParalela.exportarInventarioParalelo(destino, formato, gzip, particiones);
+        } else {
+            Connection connection = ConnectionDB.openReadConnection();
+            if (connection == null) {
+                System.err.println("Error al conectar con la base de datos.");
+                System.exit(1);
+            }
+            resultado = FuncionalidadesExtrasDAO.exportarInventario(connection, destino, formato, gzip);
+            ConnectionDB.closeConnection(connection);
+        }
+        ConnectionDB.cerrarPool();
+
+        if (resultado == null) {
+            System.exit(1);
+        }
+        System.out.println(resultado);
+    }
+}
@@ -1,13 +1,29 @@
 package com.prog11.princ;
 
+import com.prog11.bbdd.CambioVehiculo;
+import com.prog11.bbdd.CambiosDAO;
 import com.prog11.bbdd.ConnectionDB;
+import com.prog11.bbdd.DAOAsincrono;
+import com.prog11.bbdd.EstadoReplica;
 import com.prog11.bbdd.FuncionalidadesExtrasDAO;
+import com.prog11.bbdd.IndiceAutocompletado;
+import com.prog11.bbdd.InstantaneaInventario;
+import com.prog11.bbdd.InventarioEnMemoria;
+import com.prog11.bbdd.MetricasDAO;
+import com.prog11.bbdd.MigracionesBD;
+import com.prog11.bbdd.PlanesConsulta;
+import com.prog11.bbdd.Propietario;
 import com.prog11.bbdd.PropietariosDAO;
+import com.prog11.bbdd.ResumenMarca;
+import com.prog11.bbdd.UnidadDeTrabajo;
+import com.prog11.bbdd.Vehiculo;
 import com.prog11.bbdd.VehiculosDAO;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Clase principal que demuestra el uso de DAOs para gestionar
@@ -21,6 +37,9 @@ public class Prog11_Principal {
      * @param args Argumentos de línea de comandos (no utilizados).
      */
     public static void main(String[] args) {
+        // Publicar las métricas de los DAO por JMX
+        MetricasDAO.publicarEnJMX();
+
         // Establecer conexión con la base de datos
         Connection connection = ConnectionDB.openConnection();
 
@@ -29,33 +48,62 @@ public class Prog11_Principal {
             return;
         }
 
-        // Insertar propietarios
-        System.out.println("Insertando propietarios...");
-        PropietariosDAO.insertarPropietario(connection, "Álvaro Bajo", "12345678A");
-        PropietariosDAO.insertarPropietario(connection, "Ana García", "87654321B");
-        PropietariosDAO.insertarPropietario(connection, "Pedro Martínez", "12312312C");
-        PropietariosDAO.insertarPropietario(connection, "María López", "98765432D");
-        PropietariosDAO.insertarPropietario(connection, "Luis Fernández", "45645645E");
-        PropietariosDAO.insertarPropietario(connection, "Carla Sánchez", "65432178F");
-
-        // Insertar vehículos
-        System.out.println("Insertando vehículos...");
-        VehiculosDAO.insertarVehiculo(connection, "HRC8383", "Hyundai", 50000, 15000, 1);
-        VehiculosDAO.insertarVehiculo(connection, "DEF5678", "Honda", 30000, 12000, 1);
-        VehiculosDAO.insertarVehiculo(connection, "GHI9012", "Ford", 70000, 18000, 2);
-        VehiculosDAO.insertarVehiculo(connection, "JKL1234", "Toyota", 15000, 22000, 1);
-        VehiculosDAO.insertarVehiculo(connection, "MNO5678", "Kia", 25000, 17000, 2);
-        VehiculosDAO.insertarVehiculo(connection, "PQR9012", "Nissan", 45000, 14000, 3);
-        VehiculosDAO.insertarVehiculo(connection, "STU3456", "Mazda", 55000, 21000, 3);
-        VehiculosDAO.insertarVehiculo(connection, "VWX7890", "Chevrolet", 30000, 19000, 4);
-        VehiculosDAO.insertarVehiculo(connection, "XYZ1234", "Honda", 10000, 13000, 5);
-        VehiculosDAO.insertarVehiculo(connection, "LMN5678", "Honda", 20000, 16000, 6);
-        VehiculosDAO.insertarVehiculo(connection, "OPQ9012", "Honda", 35000, 15000, 4);
+        // Aplicar las migraciones pendientes del esquema
+        if (MigracionesBD.migrar(connection) < 0) {
+            ConnectionDB.closeConnection(connection);
+            ConnectionDB.cerrarPool();
+            return;
+        }
+        // Comprobar que las consultas por DNI, marca y precio usan los índices de las migraciones
+        List<String> sinIndice = PlanesConsulta.consultasSinIndice(connection);
+        if (sinIndice != null && !sinIndice.isEmpty()) {
+            System.err.println("Consultas que recorren una tabla entera:");
+            sinIndice.forEach(sql -> System.err.println("  " + sql));
+        }
+        long versionInicial = CambiosDAO.obtenerVersionActual(connection);
+
+        // Cargar el índice de autocompletado; a partir de aquí lo mantienen al día los DAO
+        IndiceAutocompletado.cargar(connection);
+
+        // Insertar los datos de ejemplo en una sola transacción
+        UnidadDeTrabajo.ejecutar(connection, Connection.TRANSACTION_READ_COMMITTED, conn -> {
+            // Insertar propietarios
+            System.out.println("Insertando propietarios...");
+            int[] propietarios = PropietariosDAO.insertarPropietarios(conn, List.of(
+                    new Propietario("Álvaro Bajo", "12345678A"),
+                    new Propietario("Ana García", "87654321B"),
+                    new Propietario("Pedro Martínez", "12312312C"),
+                    new Propietario("María López", "98765432D"),
+                    new Propietario("Luis Fernández", "45645645E"),
+                    new Propietario("Carla Sánchez", "65432178F")));
+            if (propietarios == null) {
+                throw new SQLException("No se pudieron insertar los propietarios");
+            }
+
+            // Insertar vehículos
+            System.out.println("Insertando vehículos...");
+            int[] vehiculos = VehiculosDAO.insertarVehiculos(conn, List.of(
+                    new Vehiculo("HRC8383", "Hyundai", 50000, 15000, 1),
+                    new Vehiculo("DEF5678", "Honda", 30000, 12000, 1),
+                    new Vehiculo("GHI9012", "Ford", 70000, 18000, 2),
+                    new Vehiculo("JKL1234", "Toyota", 15000, 22000, 1),
+                    new Vehiculo("MNO5678", "Kia", 25000, 17000, 2),
+                    new Vehiculo("PQR9012", "Nissan", 45000, 14000, 3),
+                    new Vehiculo("STU3456", "Mazda", 55000, 21000, 3),
+                    new Vehiculo("VWX7890", "Chevrolet", 30000, 19000, 4),
+                    new Vehiculo("XYZ1234", "Honda", 10000, 13000, 5),
+                    new Vehiculo("LMN5678", "Honda", 20000, 16000, 6),
+                    new Vehiculo("OPQ9012", "Honda", 35000, 15000, 4)));
+            if (vehiculos == null) {
+                throw new SQLException("No se pudieron insertar los vehículos");
+            }
+            return vehiculos;
+        });
 
         // Listar todos los vehículos
         System.out.println("Todos los vehículos:");
-        List<String> todosVehiculos = VehiculosDAO.obtenerTodosLosVehiculos(connection);
-        for (String vehiculo : todosVehiculos) {
+        List<Vehiculo> todosVehiculos = VehiculosDAO.obtenerTodosLosVehiculos(connection);
+        for (Vehiculo vehiculo : todosVehiculos) {
             System.out.println(vehiculo);
         }
 
@@ -66,7 +114,7 @@ public class Prog11_Principal {
         // Listar todos los vehículos después de la actualización
         System.out.println("Todos los vehículos después de la actualización:");
         todosVehiculos = VehiculosDAO.obtenerTodosLosVehiculos(connection);
-        for (String vehiculo : todosVehiculos) {
+        for (Vehiculo vehiculo : todosVehiculos) {
             System.out.println(vehiculo);
         }
 
@@ -83,21 +131,29 @@ public class Prog11_Principal {
         // Listar todos los vehículos después de eliminaciones
         System.out.println("Todos los vehículos después de eliminaciones:");
         todosVehiculos = VehiculosDAO.obtenerTodosLosVehiculos(connection);
-        for (String vehiculo : todosVehiculos) {
+        for (Vehiculo vehiculo : todosVehiculos) {
             System.out.println(vehiculo);
         }
 
+        // Consultar a la vez los vehículos de una marca y los de un propietario
+        List<Vehiculo> fordVehiculos;
+        List<Vehiculo> vehiculosDeAna;
+        try (DAOAsincrono daoAsincrono = DAOAsincrono.porDefecto()) {
+            CompletableFuture<List<Vehiculo>> consultaFord = daoAsincrono.obtenerVehiculosPorMarca("Ford");
+            CompletableFuture<List<Vehiculo>> consultaAna = daoAsincrono.obtenerVehiculosDePropietario("87654321B");
+            fordVehiculos = consultaFord.join();
+            vehiculosDeAna = consultaAna.join();
+        }
+
         // Listar vehículos por marca específica
         System.out.println("Vehículos de la marca Ford:");
-        List<String> fordVehiculos = VehiculosDAO.obtenerVehiculosPorMarca(connection, "Ford");
-        for (String vehiculo : fordVehiculos) {
+        for (Vehiculo vehiculo : fordVehiculos) {
             System.out.println(vehiculo);
         }
 
         // Listar vehículos de un propietario por DNI
         System.out.println("Vehículos de Ana García:");
-        List<String> vehiculosDeAna = PropietariosDAO.obtenerVehiculosDePropietario(connection, "87654321B");
-        for (String vehiculo : vehiculosDeAna) {
+        for (Vehiculo vehiculo : vehiculosDeAna) {
             System.out.println(vehiculo);
         }
 
@@ -111,49 +167,76 @@ public class Prog11_Principal {
         resultado = PropietariosDAO.eliminarPropietario(connection, "12345678A");
         System.out.println("Resultado eliminación: " + resultado);
 
+        // Consultar solo los vehículos que han cambiado desde el arranque
+        List<CambioVehiculo> cambios = CambiosDAO.obtenerCambiosVehiculosDesde(connection, versionInicial, 1000);
+        if (cambios != null) {
+            System.out.println("Vehículos cambiados desde el arranque: " + cambios.size() + " ("
+                    + cambios.stream().filter(CambioVehiculo::borrado).count() + " borrados)");
+        }
+
         // Buscar vehículos por rango de precio
         System.out.println("Vehículos entre 10,000 y 20,000:");
-        List<String> vehiculosPorPrecio = FuncionalidadesExtrasDAO.buscarVehiculosPorPrecio(connection, 10000, 20000);
+        List<Vehiculo> vehiculosPorPrecio = FuncionalidadesExtrasDAO.buscarVehiculosPorPrecio(connection, 10000, 20000);
         if (vehiculosPorPrecio != null) {
-            for (String vehiculo : vehiculosPorPrecio) {
+            for (Vehiculo vehiculo : vehiculosPorPrecio) {
                 System.out.println(vehiculo);
             }
         }
 
+        // Repetir la búsqueda en memoria sobre una instantánea del inventario
+        if (InventarioEnMemoria.refrescar(connection) >= 0) {
+            InstantaneaInventario inventario = InventarioEnMemoria.obtener();
+            System.out.println("Vehículos Honda entre 10,000 y 20,000 (en memoria): "
+                    + inventario.contarPorMarcaYPrecio("Honda", 10000, 20000));
+        }
+
         // Actualizar datos de un vehículo
         System.out.println("Actualizando marca de OPQ9012 a Toyota...");
         resultado = FuncionalidadesExtrasDAO.actualizarVehiculo(connection, "OPQ9012", "Toyota", 35000, 14000);
         System.out.println("Resultado de actualización: " + (resultado == 0 ? "Éxito" : "Fallo"));
 
-        // Agrupando vehículos por marca
-        System.out.println("Agrupando vehículos por marca:");
-        List<List<String>> agrupadosPorMarca = FuncionalidadesExtrasDAO.agruparVehiculosPorMarca(connection);
-        if (agrupadosPorMarca != null) {
-            for (List<String> grupo : agrupadosPorMarca) {
-                if (!grupo.isEmpty()) {
-                    String primeraEntrada = grupo.get(0);
-                    // Asegurar la extracción de la marca
-                    String[] partes = primeraEntrada.split(",");
-                    String marca = partes[1].split(":")[1].trim();
-                    System.out.println("Marca: " + marca);
-                    for (String vehiculo : grupo) {
-                        System.out.println("  " + vehiculo);
-                    }
-                } else {
-                    System.out.println("Marca: Desconocida");
-                }
+        // Autocompletar sin consultar la base de datos
+        System.out.println("Marcas que empiezan por \"h\": " + IndiceAutocompletado.buscarMarcas("h", 5));
+        System.out.println("Matrículas que empiezan por \"o\": " + IndiceAutocompletado.buscarMatriculas("o", 5));
+
+        // Resumen por marca calculado en la base de datos
+        System.out.println("Resumen por marca:");
+        List<ResumenMarca> resumenes = FuncionalidadesExtrasDAO.obtenerResumenPorMarca(connection);
+        if (resumenes != null) {
+            for (ResumenMarca resumen : resumenes) {
+                System.out.println(resumen);
             }
         }
 
+        // Agrupando vehículos por marca
+        System.out.println("Agrupando vehículos por marca:");
+        FuncionalidadesExtrasDAO.recorrerGruposPorMarca(connection, (marca, grupo) -> {
+            System.out.println("Marca: " + (marca != null ? marca : "Desconocida"));
+            for (Vehiculo vehiculo : grupo) {
+                System.out.println("  " + vehiculo);
+            }
+        });
 
         Scanner scanner = new Scanner(System.in);
         System.out.println("¿Desea ver el informe en pantalla (1) o guardarlo en un archivo de texto (2)?");
         int eleccion = scanner.nextInt();
 
-        FuncionalidadesExtrasDAO.generarInformeInventario(connection, eleccion);
+        // El informe solo lee, así que puede hacerse en una réplica
+        Connection lectura = ConnectionDB.openReadConnection();
+        if (lectura != null) {
+            FuncionalidadesExtrasDAO.generarInformeInventario(lectura, eleccion);
+            ConnectionDB.closeConnection(lectura);
+        }
 
         // Cerrar la conexión a la base de datos
         ConnectionDB.closeConnection(connection);
+        System.out.println("Estadísticas del pool: " + ConnectionDB.obtenerEstadisticasPool());
+        for (EstadoReplica replica : ConnectionDB.obtenerEstadoReplicas()) {
+            System.out.println("Réplica: " + replica);
+        }
+        System.out.println("Métricas de los DAO:");
+        System.out.print(MetricasDAO.volcar());
+        ConnectionDB.cerrarPool();
     }
 }
 
@@ -0,0 +1,34 @@
+-- Las versiones anteriores podían insertar varias veces el mismo DNI. Antes de crear el índice único,
+-- los vehículos de los propietarios repetidos pasan al de menor ID con ese DNI y se borran los demás.
+-- Las tablas derivadas agrupan, así que MariaDB las materializa antes de modificar propietarios.
+UPDATE vehiculos v
+    JOIN propietarios p ON v.id_prop = p.id_prop
+    JOIN (SELECT dni_prop, MIN(id_prop) AS id_prop
+          FROM propietarios
+          WHERE dni_prop IS NOT NULL
+          GROUP BY dni_prop
+          HAVING COUNT(*) > 1) d ON d.dni_prop = p.dni_prop
+SET v.id_prop = d.id_prop
+WHERE v.id_prop <> d.id_prop;
+
+DELETE p
+FROM propietarios p
+    JOIN (SELECT dni_prop, MIN(id_prop) AS id_prop
+          FROM propietarios
+          WHERE dni_prop IS NOT NULL
+          GROUP BY dni_prop
+          HAVING COUNT(*) > 1) d ON d.dni_prop = p.dni_prop
+WHERE p.id_prop > d.id_prop;
+
+-- eliminarPropietario y obtenerVehiculosDePropietario filtran por DNI, que debe ser único
+ALTER TABLE propietarios
+    ADD UNIQUE INDEX IF NOT EXISTS uk_propietarios_dni (dni_prop);
+
+-- obtenerVehiculosPorMarca y la paginación por (marca_veh, mat_veh)
+CREATE INDEX IF NOT EXISTS idx_vehiculos_marca_mat ON vehiculos (marca_veh, mat_veh);
+
+-- Búsquedas por marca y rango de precio
+CREATE INDEX IF NOT EXISTS idx_vehiculos_marca_precio ON vehiculos (marca_veh, precio_veh);
+
+-- buscarVehiculosPorPrecio
+CREATE INDEX IF NOT EXISTS idx_vehiculos_precio ON vehiculos (precio_veh);
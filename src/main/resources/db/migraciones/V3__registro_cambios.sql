@@ -0,0 +1,58 @@
+-- Registro de cambios de vehiculos y propietarios. Cada inserción, modificación o borrado añade una fila
+-- con una versión creciente; los borrados se marcan como lápidas (borrado = TRUE)
+CREATE TABLE IF NOT EXISTS cambios_inventario
+(
+    version BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+    tabla   ENUM ('vehiculos', 'propietarios') NOT NULL,
+    clave   VARCHAR(11) NOT NULL,
+    borrado BOOLEAN     NOT NULL DEFAULT FALSE,
+    cambiado TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+    PRIMARY KEY (version),
+    INDEX idx_cambios_clave (tabla, clave, version)
+)
+    COMMENT ='Cambios de vehiculos y propietarios para sincronizar por versiones'
+    ENGINE = InnoDB
+    -- La misma que vehiculos y propietarios, para comparar clave con mat_veh sin conversiones
+    COLLATE = 'latin1_swedish_ci';
+
+CREATE TRIGGER IF NOT EXISTS trg_vehiculos_insertar
+    AFTER INSERT ON vehiculos
+    FOR EACH ROW
+    INSERT INTO cambios_inventario (tabla, clave, borrado) VALUES ('vehiculos', NEW.mat_veh, FALSE);
+
+-- Si cambia la matrícula, la antigua queda como lápida
+CREATE TRIGGER IF NOT EXISTS trg_vehiculos_actualizar
+    AFTER UPDATE ON vehiculos
+    FOR EACH ROW
+    INSERT INTO cambios_inventario (tabla, clave, borrado)
+    SELECT 'vehiculos', OLD.mat_veh, TRUE FROM DUAL WHERE OLD.mat_veh <> NEW.mat_veh
+    UNION ALL
+    SELECT 'vehiculos', NEW.mat_veh, FALSE FROM DUAL;
+
+CREATE TRIGGER IF NOT EXISTS trg_vehiculos_eliminar
+    AFTER DELETE ON vehiculos
+    FOR EACH ROW
+    INSERT INTO cambios_inventario (tabla, clave, borrado) VALUES ('vehiculos', OLD.mat_veh, TRUE);
+
+CREATE TRIGGER IF NOT EXISTS trg_propietarios_insertar
+    AFTER INSERT ON propietarios
+    FOR EACH ROW
+    INSERT INTO cambios_inventario (tabla, clave, borrado) VALUES ('propietarios', NEW.id_prop, FALSE);
+
+CREATE TRIGGER IF NOT EXISTS trg_propietarios_actualizar
+    AFTER UPDATE ON propietarios
+    FOR EACH ROW
+    INSERT INTO cambios_inventario (tabla, clave, borrado) VALUES ('propietarios', NEW.id_prop, FALSE);
+
+-- InnoDB no ejecuta los triggers de las filas borradas por ON DELETE CASCADE, así que las lápidas
+-- de los vehículos del propietario se escriben antes de borrarlo
+CREATE TRIGGER IF NOT EXISTS trg_propietarios_eliminar_vehiculos
+    BEFORE DELETE ON propietarios
+    FOR EACH ROW
+    INSERT INTO cambios_inventario (tabla, clave, borrado)
+    SELECT 'vehiculos', mat_veh, TRUE FROM vehiculos WHERE id_prop = OLD.id_prop;
+
+CREATE TRIGGER IF NOT EXISTS trg_propietarios_eliminar
+    AFTER DELETE ON propietarios
+    FOR EACH ROW
+    INSERT INTO cambios_inventario (tabla, clave, borrado) VALUES ('propietarios', OLD.id_prop, TRUE);